@@ -0,0 +1,97 @@
+package Controller;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import Model.Message;
+import Util.EncodedMessageCache;
+
+/**
+ * Writes messages to a response output stream as they are produced, either as one JSON array or as
+ * newline-delimited JSON (one object per line).
+ *
+ * The first message is flushed straight away so the client sees bytes as soon as the first row is
+ * read; after that an 8 KiB buffer decides when to write. Each message is written as UTF-8 bytes,
+ * from its cached encoding when there is one (see EncodedMessageCache); the brackets, commas and
+ * newlines between them are written here.
+ *
+ * Nothing reaches the response until the first message is written, so if reading fails before
+ * then the writer can simply be dropped and the response still answered with an error status.
+ */
+class MessageStreamWriter implements Consumer<Message>, AutoCloseable {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final OutputStream out;
+    private final EncodedMessageCache.Session json;
+    private final boolean ndjson;
+    private boolean first = true;
+
+    /**
+     * @param out the response output stream.
+     * @param ndjson true for newline-delimited JSON, false for a JSON array.
+     * @param json a session opened before the messages were read.
+     * @throws IOException if the opening bracket could not be written.
+     */
+    MessageStreamWriter(OutputStream out, boolean ndjson, EncodedMessageCache.Session json) throws IOException {
+        this.out = new BufferedOutputStream(out, 8192);
+        this.ndjson = ndjson;
+        this.json = json;
+        if (!ndjson) {
+            this.out.write('[');
+        }
+    }
+
+
+    /**
+     * Write one message.
+     *
+     * @param message the next message.
+     * @throws UncheckedIOException if the client has gone away.
+     */
+    @Override
+    public void accept(Message message) {
+        try {
+            if (!first && !ndjson) {
+                out.write(',');
+            }
+            json.write(out, message);
+            if (ndjson) {
+                out.write('\n');
+            }
+            if (first) {
+                first = false;
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return true once any bytes have been passed on to the response stream.
+     */
+    boolean hasFlushed() {
+        return !first;
+    }
+
+
+    /**
+     * Close the array, if any, and flush whatever is still buffered. The response stream itself is
+     * left open for Javalin to close. Only call this once every message has been read: closing
+     * after a failure would make a partial list look complete.
+     *
+     * @throws IOException if the client has gone away.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!ndjson) {
+            out.write(']');
+        }
+        out.flush();
+    }
+}
@@ -1,17 +1,42 @@
 package Controller;
 
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.sse.SseClient;
+import io.javalin.util.ConcurrencyUtil;
+
+import org.eclipse.jetty.server.Request;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import Model.Account;
 import Model.Message;
+import Model.MessageChangePage;
 import Service.AccountService;
+import Service.MessageEventBus;
 import Service.MessageService;
 
+import Util.Bulkhead;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+import Util.JsonCodec;
+import Util.PayloadTooLargeException;
+import Util.UnitOfWork;
+import Util.VirtualThreads;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * TODO: You will need to write your own endpoints and handlers for your controller. The endpoints you will need can be
@@ -20,12 +45,50 @@ import java.util.List;
  */
 public class SocialMediaController {
 
+    private static final String UNIT_OF_WORK = "unit-of-work";
+
+    /**
+     * Runs every handler that reads from the database, off Jetty's request threads. By default the 
+     * bulkheads are sized out of the connection pool, so that their threads do not queue for 
+     * connections; see ConnectionUtil.defaultReadThreads().
+     */
+    private static final Bulkhead READS = new Bulkhead("db-reads",
+            Integer.getInteger("bulkhead.reads.threads", ConnectionUtil.defaultReadThreads()),
+            Integer.getInteger("bulkhead.reads.queueCapacity", 256));
+    /**
+     * Runs every handler that writes to the database, so that a burst of writes cannot take the 
+     * threads reads need, and the other way round.
+     */
+    private static final Bulkhead WRITES = new Bulkhead("db-writes",
+            Integer.getInteger("bulkhead.writes.threads", ConnectionUtil.defaultWriteThreads()),
+            Integer.getInteger("bulkhead.writes.queueCapacity", 128));
+
     AccountService accountService;
     MessageService messageService;
+    private final Bulkhead reads;
+    private final Bulkhead writes;
+    /**
+     * Part of every ETag, since message generations start again from 0 with each new MessageService.
+     */
+    private final String etagNonce = Long.toHexString(ThreadLocalRandom.current().nextLong());
 
     public SocialMediaController() {
+        this(new MessageService(), READS, WRITES);
+    }
+
+
+    /**
+     * This is used for when a mock messageService or smaller bulkheads are used in the test cases.
+     * 
+     * @param messageService
+     * @param reads the bulkhead handlers that read from the database run on.
+     * @param writes the bulkhead handlers that write to the database run on.
+     */
+    public SocialMediaController(MessageService messageService, Bulkhead reads, Bulkhead writes) {
         this.accountService = new AccountService();
-        this.messageService = new MessageService();
+        this.messageService = messageService;
+        this.reads = reads;
+        this.writes = writes;
     }
 
 
@@ -36,21 +99,113 @@ public class SocialMediaController {
      * @return a Javalin app object which defines the behavior of the Javalin controller.
      */
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        // Javalin would use virtual threads whenever the JDK has them; keep them behind server.virtualThreads
+        ConcurrencyUtil.INSTANCE.setUseLoom(VirtualThreads.isEnabled());
+        Javalin app = Javalin.create(config -> config.jsonMapper(JsonCodec.javalinMapper()));
+        app.events(event -> event.serverStopped(messageService::close));
+        // the request was fine but the database was not; the client may retry
+        app.exception(DataAccessException.class, (e, context) -> context.status(503));
+        app.before(this::beginUnitOfWork);
+        app.after(this::endUnitOfWork);
         app.get("example-endpoint", this::exampleHandler);
-        app.post("/register", this::registerHandler);
-        app.post("/login", this::loginHandler);
+        app.post("/register", onWrites(this::registerHandler));
+        app.post("/login", onReads(this::loginHandler));
+        app.get("/accounts/available", onReads(this::usernameAvailableHandler));
+        // offloads its own database work, since write-behind has a queue of its own
         app.post("/messages", this::createMessageHandler);
-        app.get("/messages", this::getAllMessagesHandler);
-        app.get("/messages/{message_id}", this::getMessageByIdHandler);
-        app.delete("/messages/{message_id}", this::deleteMessageHandler);
-        app.patch("/messages/{message_id}", this::updateMessageHandler);
-        app.get("/accounts/{account_id}/messages", this::getMessagesFromAccountIdHandler);
+        app.post("/messages/batch", onWrites(this::createMessagesBatchHandler));
+        app.post("/messages/lookup", onReads(this::lookupMessagesHandler));
+        app.get("/messages", onReads(this::getAllMessagesHandler));
+        // registered before /messages/{message_id}, which would otherwise match them
+        app.get("/messages/changes", onReads(this::getMessageChangesHandler));
+        app.sse("/messages/stream", this::streamMessagesHandler);
+        app.get("/messages/{message_id}", onReads(this::getMessageByIdHandler));
+        app.delete("/messages/{message_id}", onWrites(this::deleteMessageHandler));
+        app.patch("/messages/{message_id}", onWrites(this::updateMessageHandler));
+        app.get("/accounts/{account_id}/messages", onReads(this::getMessagesFromAccountIdHandler));
+        app.get("/timeline", onReads(this::getTimelineHandler));
+        app.get("/metrics", this::metricsHandler);
 
         return app;
     }
 
 
+    /**
+     * @param handler a handler that reads from the database.
+     * @return a handler that runs it on the reads bulkhead.
+     */
+    private Handler onReads(Handler handler) {
+        return context -> offload(context, reads, handler);
+    }
+
+
+    /**
+     * @param handler a handler that writes to the database.
+     * @return a handler that runs it on the writes bulkhead.
+     */
+    private Handler onWrites(Handler handler) {
+        return context -> offload(context, writes, handler);
+    }
+
+
+    /**
+     * Run a handler on a bulkhead thread, and release the request thread in the meantime.
+     * 
+     * The handler gets a unit of work of its own on the bulkhead thread, so the request's unit of 
+     * work is handed back here. If the bulkhead is full, the response status is 503.
+     * 
+     * @param context the request context.
+     * @param bulkhead the bulkhead to run the handler on.
+     * @param handler the handler.
+     */
+    private void offload(Context context, Bulkhead bulkhead, Handler handler) {
+        endUnitOfWork(context);
+        // submitted from the supplier, which Javalin calls once the request has gone async
+        context.future(() -> {
+            try {
+                return bulkhead.submit(() -> {
+                    UnitOfWork uow = UnitOfWork.begin();
+                    try {
+                        handler.handle(context);
+                    } finally {
+                        uow.close();
+                    }
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                context.status(503);
+                return CompletableFuture.completedFuture(null);
+            }
+        });
+    }
+
+
+    /**
+     * Bind a unit of work to the request, so that every DAO call made while handling it shares a 
+     * single connection.
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin.
+     */
+    private void beginUnitOfWork(Context context) {
+        context.attribute(UNIT_OF_WORK, UnitOfWork.begin());
+    }
+
+
+    /**
+     * Release the request's unit of work, returning its connection to the pool. This runs even if
+     * the endpoint handler threw.
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin.
+     */
+    private void endUnitOfWork(Context context) {
+        UnitOfWork uow = context.attribute(UNIT_OF_WORK);
+        if (uow != null) {
+            context.attribute(UNIT_OF_WORK, null);
+            uow.close();
+        }
+    }
+
+
     /**
      * This is an example handler for an example endpoint.
      * 
@@ -73,12 +228,16 @@ public class SocialMediaController {
      *
      * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
-     * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
+     * @throws IOException will be thrown if there is an issue converting JSON into an object.
      */
-    private void registerHandler(Context context) throws JsonProcessingException {
-        String jsonString = context.body();
-        ObjectMapper om = new ObjectMapper();
-        Account account = om.readValue(context.body(), Account.class);
+    private void registerHandler(Context context) throws IOException {
+        Account account;
+        try {
+            account = JsonCodec.readAccount(context.bodyInputStream());
+        } catch (PayloadTooLargeException e) {
+            context.status(400);
+            return;
+        }
 
         Account output = accountService.insertAccount(account);
         if (output != null) {
@@ -104,12 +263,16 @@ public class SocialMediaController {
 
      * @param ctx the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
-     * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
+     * @throws IOException will be thrown if there is an issue converting JSON into an object.
      */
-    private void loginHandler(Context context) throws JsonProcessingException {
-        String jsonString = context.body();
-        ObjectMapper om = new ObjectMapper();
-        Account account = om.readValue(jsonString, Account.class);
+    private void loginHandler(Context context) throws IOException {
+        Account account;
+        try {
+            account = JsonCodec.readAccount(context.bodyInputStream());
+        } catch (PayloadTooLargeException e) {
+            context.status(400);
+            return;
+        }
 
         Account output = accountService.login(account);
         if (output != null) {
@@ -121,6 +284,32 @@ public class SocialMediaController {
     }
 
 
+    /**
+     * Handler to check whether a username is still free, for the signup form.
+     * GET /accounts/available?username={username}
+     * 
+     * The response body contains a JSON object with the username and whether 
+     * it is available. Most free usernames are answered without querying the 
+     * database. If the username query parameter is missing, the response 
+     * status should be 400. (Client error)
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     */
+    private void usernameAvailableHandler(Context context) {
+        String username = context.queryParam("username");
+        if (username == null) {
+            context.status(400);
+            return;
+        }
+
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("username", username);
+        output.put("available", accountService.isUsernameAvailable(username));
+        context.json(output);
+    }
+
+
     /**
      * Handler to create a message.
      * POST /message
@@ -132,23 +321,133 @@ public class SocialMediaController {
      * If successful, the response body should contain a JSON of the message, 
      * including its message_id. The response status should be 200, which is 
      * the default. The new message should be persisted to the database.
+     * 
+     * When write-behind is enabled, the message is group-committed with other 
+     * concurrent posts and the response is sent asynchronously once it is 
+     * durable. If the write queue is full, the response status is 503. 
+     * Otherwise the insert runs on the writes bulkhead, which also answers 503 
+     * when it is full.
+     * 
+     * The body is parsed as it streams in, and a message_text that is too 
+     * long is rejected with a 400 without reading the rest of the body.
+     *
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     * @throws IOException will be thrown if there is an issue converting JSON into an object.
+     */
+    private void createMessageHandler(Context context) throws IOException {
+        Message message;
+        try {
+            message = JsonCodec.readMessage(context.bodyInputStream(), MessageService.MAX_TEXT_LENGTH);
+        } catch (PayloadTooLargeException e) {
+            context.status(400);
+            return;
+        }
+
+        if (messageService.isWriteBehindEnabled()) {
+            // the request thread is released while the write is queued, so hand back its
+            // unit of work here instead of from whichever thread completes the future
+            endUnitOfWork(context);
+            context.future(() -> messageService.insertMessageAsync(message)
+                    .thenAccept(output -> {
+                        if (output != null) {
+                            context.json(output);
+                        } else {
+                            context.status(400);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        context.status(503);
+                        return null;
+                    }));
+            return;
+        }
+
+        offload(context, writes, ignored -> {
+            Message output = messageService.insertMessage(message);
+            if (output != null) {
+                context.json(output);
+                return;
+            }
+
+            context.status(400);
+        });
+    }
+
+
+    /**
+     * Handler to create many messages at once.
+     * POST /messages/batch
+     * 
+     * The request body is a JSON array of messages, or, with a Content-Type of 
+     * application/x-ndjson, one JSON message per line. None of them contain a 
+     * message_id. Every message is checked against the same rules as POST 
+     * /messages, and the valid ones are inserted together in one transaction.
+     * 
+     * The response body is a JSON list with one result per message, in request 
+     * order, holding either the stored message (including its message_id) or 
+     * the reason it was rejected. The response status is 200 even if some 
+     * messages were rejected. If the batch is empty, holds more than 
+     * MessageService.MAX_BATCH_SIZE messages or holds a message_text over 255 
+     * characters, the response status is 400.
+     *
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     * @throws IOException will be thrown if there is an issue converting JSON into an object.
+     */
+    private void createMessagesBatchHandler(Context context) throws IOException {
+        // a JSON array and NDJSON are both read as they stream in, stopping as
+        // soon as the batch is known to be too large
+        List<Message> messages;
+        try {
+            messages = JsonCodec.readMessages(context.bodyInputStream(), MessageService.MAX_BATCH_SIZE,
+                    MessageService.MAX_TEXT_LENGTH);
+        } catch (PayloadTooLargeException e) {
+            context.status(400);
+            return;
+        }
+
+        if (messages.isEmpty() || messages.size() > MessageService.MAX_BATCH_SIZE) {
+            context.status(400);
+            return;
+        }
+
+        context.json(messageService.insertMessages(messages));
+    }
+
+
+    /**
+     * Handler to get many messages by message_id, for id lists too long for a query string.
+     * POST /messages/lookup
+     * 
+     * The request body is a JSON array of message ids. The response is the 
+     * same as for GET /messages?ids=.
      *
      * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
      * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
      */
-    private void createMessageHandler(Context context) throws JsonProcessingException {
-        String jsonString = context.body();
-        ObjectMapper om = new ObjectMapper();
-        Message message = om.readValue(context.body(), Message.class);
+    private void lookupMessagesHandler(Context context) throws JsonProcessingException {
+        List<Integer> message_ids = JsonCodec.readMessageIds(context.body());
 
-        Message output = messageService.insertMessage(message);
-        if (output != null) {
-            context.json(output);
+        lookupMessages(context, message_ids);
+    }
+
+
+    /**
+     * Respond with the messages for a list of ids, or 400 if the list is empty, too long or holds a null.
+     * 
+     * @param context the request context.
+     * @param message_ids the requested message ids.
+     */
+    private void lookupMessages(Context context, List<Integer> message_ids) {
+        if (message_ids.isEmpty() || message_ids.size() > MessageService.MAX_LOOKUP_SIZE
+                || message_ids.contains(null)) {
+            context.status(400);
             return;
         }
 
-        context.status(400);
+        context.json(messageService.getMessagesByIds(message_ids));
     }
 
 
@@ -202,14 +501,21 @@ public class SocialMediaController {
      * updated message_text. If the update of the message is not successful 
      * for any reason, the response status should be 400. (Client error)
      * 
+     * As with POST /messages, a message_text that is too long is rejected 
+     * without reading the rest of the body.
+     * 
      * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
-     * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
+     * @throws IOException will be thrown if there is an issue converting JSON into an object.
      */
-    private void updateMessageHandler(Context context) throws JsonProcessingException {
-        String jsonString = context.body();
-        ObjectMapper om = new ObjectMapper();
-        Message message = om.readValue(jsonString, Message.class);
+    private void updateMessageHandler(Context context) throws IOException {
+        Message message;
+        try {
+            message = JsonCodec.readMessage(context.bodyInputStream(), MessageService.MAX_TEXT_LENGTH);
+        } catch (PayloadTooLargeException e) {
+            context.status(400);
+            return;
+        }
 
         try {
             int message_id = Integer.parseInt(context.pathParam("message_id"));
@@ -237,14 +543,217 @@ public class SocialMediaController {
      * the list to simply be empty if there are no messages. The response 
      * status should always be 200, which is the default.
      * 
+     * The list is streamed row by row as it is read from the database. If the 
+     * Accept header asks for application/x-ndjson, each message is written as 
+     * its own line of JSON instead of as an element of one JSON array.
+     * 
+     * If after_id or limit is given, the messages are paginated instead: the 
+     * response body is a JSON page of at most limit messages with a message_id 
+     * greater than after_id, plus a next_cursor to pass as after_id for the 
+     * following page (null on the last page). If either parameter is not a 
+     * number, the response status is 400.
+     * 
+     * If ids is given as a comma-separated list of message ids, the response 
+     * body is a JSON object holding the messages with those ids, in the order 
+     * requested, and a missing_ids list of the ids that do not exist. If the 
+     * list is empty, malformed or longer than MessageService.MAX_LOOKUP_SIZE, 
+     * the response status is 400.
+     * 
+     * If since or until is given, only messages with since <= time_posted_epoch 
+     * < until are returned, oldest first. The window is streamed like the full 
+     * list unless cursor or limit is also given, in which case it is paginated 
+     * and next_cursor is passed back as cursor. If any of these parameters is 
+     * malformed, the response status is 400.
+     * 
+     * Every response carries an ETag that changes whenever any message is 
+     * inserted, updated or deleted. A request whose If-None-Match still matches 
+     * it is answered with 304 and no body, without reading any messages.
+     * 
      * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
-     * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
+     * @throws IOException will be thrown if the response could not be written.
      */
-    private void getAllMessagesHandler(Context context) throws JsonProcessingException {
-        List<Message> output = messageService.getAllMessages();
+    private void getAllMessagesHandler(Context context) throws IOException {
+        if (notModified(context, messageService.getGeneration())) {
+            return;
+        }
 
-        context.json(output);
+        String ids = context.queryParam("ids");
+        if (ids != null) {
+            List<Integer> message_ids = new ArrayList<>();
+            try {
+                for (String id : ids.split(",")) {
+                    message_ids.add(Integer.parseInt(id.trim()));
+                }
+            } catch (NumberFormatException e) {
+                context.status(400);
+                return;
+            }
+            lookupMessages(context, message_ids);
+            return;
+        }
+
+        if (context.queryParam("since") != null || context.queryParam("until") != null) {
+            getMessagesInTimeRange(context);
+            return;
+        }
+
+        String after_id = context.queryParam("after_id");
+        String limit = context.queryParam("limit");
+        if (after_id != null || limit != null) {
+            try {
+                int after = after_id == null ? 0 : Integer.parseInt(after_id);
+                int size = limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+
+                context.json(messageService.getMessagesPage(after, size));
+            } catch (NumberFormatException e) {
+                context.status(400);
+            }
+            return;
+        }
+
+        boolean ndjson = acceptsNdjson(context);
+        stream(context, ndjson, writer -> messageService.streamAllMessages(writer));
+    }
+
+
+    /**
+     * The since/until part of GET /messages.
+     * 
+     * @param context the request context.
+     * @throws IOException will be thrown if the response could not be written.
+     */
+    private void getMessagesInTimeRange(Context context) throws IOException {
+        String since = context.queryParam("since");
+        String until = context.queryParam("until");
+        String cursor = context.queryParam("cursor");
+        String limit = context.queryParam("limit");
+        long from;
+        long to;
+        int size;
+        try {
+            from = since == null ? Long.MIN_VALUE : Long.parseLong(since);
+            to = until == null ? Long.MAX_VALUE : Long.parseLong(until);
+            size = limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            context.status(400);
+            return;
+        }
+
+        if (cursor != null || limit != null) {
+            try {
+                context.json(messageService.getMessagesInTimeRangePage(from, to, cursor, size));
+            } catch (IllegalArgumentException e) {
+                // malformed cursor
+                context.status(400);
+            }
+            return;
+        }
+
+        boolean ndjson = acceptsNdjson(context);
+        stream(context, ndjson, writer -> messageService.streamMessagesInTimeRange(from, to, writer));
+    }
+
+
+    /**
+     * Handler to get the changes to messages since a sequence number.
+     * GET /messages/changes?since_seq={seq}&limit={limit}
+     * 
+     * The response body is a JSON page of at most limit inserts, updates and 
+     * deletes made after since_seq, oldest first, each with the message as it 
+     * is now. next_seq is passed back as since_seq to get the following 
+     * changes, and has_more tells whether there are more straight away. 
+     * Without since_seq the page is empty, and its next_seq is where a client 
+     * that is about to fetch every message should start from.
+     * 
+     * Only recent changes are kept. If since_seq is too old, the response 
+     * status is 410 and the client must fetch every message again. If 
+     * since_seq or limit is malformed, the response status is 400.
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     */
+    private void getMessageChangesHandler(Context context) {
+        String since_seq = context.queryParam("since_seq");
+        String limit = context.queryParam("limit");
+        try {
+            Long since = since_seq == null ? null : Long.parseLong(since_seq);
+            int size = limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+
+            MessageChangePage page = messageService.getChanges(since, size);
+            if (page == null) {
+                context.status(410);
+                return;
+            }
+            context.json(page);
+        } catch (NumberFormatException e) {
+            context.status(400);
+        }
+    }
+
+
+    /**
+     * Handler to stream message changes as Server-Sent Events.
+     * GET /messages/stream?posted_by={account_id}
+     * 
+     * The client must send Accept: text/event-stream. Every message created, 
+     * updated or deleted after it connects is pushed as an event named 
+     * created, updated or deleted, whose data is the message as JSON. With 
+     * posted_by, only that account's messages are pushed. A malformed 
+     * posted_by closes the stream straight away. Each event's id is the 
+     * seq of the change in GET /messages/changes, and events arrive in seq 
+     * order.
+     * 
+     * A client that falls too far behind is disconnected, or with the drop 
+     * policy sent a dropped event counting the events it missed; either way 
+     * it can catch up with GET /messages/changes?since_seq= the id of the 
+     * last event it got. A client that stops reading altogether is 
+     * disconnected once a write to it has been blocked for 
+     * messages.stream.writeTimeoutMillis.
+     * 
+     * @param client the SSE connection, kept open until the client or the server closes it.
+     */
+    private void streamMessagesHandler(SseClient client) {
+        // the stream stays open long after this returns; do not keep the request's unit of work bound to the thread
+        endUnitOfWork(client.ctx);
+        Integer posted_by = null;
+        String param = client.ctx.queryParam("posted_by");
+        if (param != null) {
+            try {
+                posted_by = Integer.valueOf(param);
+            } catch (NumberFormatException e) {
+                client.close();
+                return;
+            }
+        }
+
+        client.keepAlive();
+        MessageEventBus.Subscription subscription = messageService.subscribe(posted_by, new MessageEventBus.Sink() {
+            @Override
+            public void send(String event, String data, String id) {
+                client.sendEvent(event, data, id);
+            }
+
+            @Override
+            public void sendComment(String comment) {
+                client.sendComment(comment);
+            }
+
+            @Override
+            public void close() {
+                client.close();
+            }
+
+            @Override
+            public void abort() {
+                Request.getBaseRequest(client.ctx.req()).getHttpChannel()
+                        .abort(new TimeoutException("client is not reading its event stream"));
+                client.close();
+            }
+        });
+        client.onClose(subscription::close);
+        // lets the client know it is subscribed before the first event
+        client.sendComment("subscribed");
     }
 
 
@@ -273,7 +782,7 @@ public class SocialMediaController {
             // if message_id not found in database, then request would be considered
             // "fulfilled", and by default return 200
 
-        } catch (Exception e) {
+        } catch (NumberFormatException e) {
             // message id parsed incorrectly
         }
     }
@@ -289,24 +798,195 @@ public class SocialMediaController {
      * there are no messages. The response status should always be 200, which
      * is the default
      * 
+     * Like GET /messages, the list is streamed, as NDJSON if the Accept header 
+     * asks for application/x-ndjson.
+     * 
+     * If before or limit is given, the response body is instead one JSON page 
+     * of at most limit messages, newest first, plus a next_cursor to pass as 
+     * before for the following (older) page (null on the last page). If either 
+     * parameter is malformed, the response status is 400.
+     * 
+     * As with GET /messages, responses carry an ETag, which here only changes 
+     * with the account's own messages, and If-None-Match is answered with 304.
+     * 
      * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
      *            be available to this method automatically thanks to the app.put method.
-     * @throws JsonProcessingException will be thrown if there is an issue converting JSON into an object.
+     * @throws IOException will be thrown if the response could not be written.
      */
-    private void getMessagesFromAccountIdHandler(Context context) throws JsonProcessingException {
+    private void getMessagesFromAccountIdHandler(Context context) throws IOException {
+        int account_id;
         try {
-            int account_id = Integer.parseInt(context.pathParam("account_id"));
+            account_id = Integer.parseInt(context.pathParam("account_id"));
+        } catch (NumberFormatException e) {
+            // account id parsed incorrectly
+            return;
+        }
 
-            List<Message> output = messageService.getMessagesFromAccountId(account_id);
-            if (output != null) {
-                context.json(output);
+        if (notModified(context, messageService.getAccountGeneration(account_id))) {
+            return;
+        }
+
+        String before = context.queryParam("before");
+        String limit = context.queryParam("limit");
+        if (before != null || limit != null) {
+            try {
+                int size = limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+
+                context.json(messageService.getMessagesFromAccountIdPage(account_id, before, size));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException for limit, or a malformed cursor
+                context.status(400);
             }
+            return;
+        }
 
-            // if message_id not found in database, then request would be considered
-            // "fulfilled", and by default return 200
+        // if the account has no messages, the request is still considered
+        // "fulfilled" and returns an empty list with the default 200
+        boolean ndjson = acceptsNdjson(context);
+        stream(context, ndjson, writer -> messageService.streamMessagesFromAccountId(account_id, writer));
+    }
 
-        } catch (Exception e) {
-            // account id parsed incorrectly
+
+    /**
+     * Handler to get the merged timeline of several accounts.
+     * GET /timeline?accounts={account_id},{account_id}&limit={limit}&before={cursor}
+     * 
+     * The response body is a JSON page of at most limit messages posted by any 
+     * of the accounts, newest first, plus a next_cursor to pass as before for 
+     * the following page (null on the last page). If accounts is missing, 
+     * malformed or lists more than MessageService.MAX_TIMELINE_ACCOUNTS 
+     * accounts, or limit or before is malformed, the response status is 400.
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     */
+    private void getTimelineHandler(Context context) {
+        String accounts = context.queryParam("accounts");
+        String limit = context.queryParam("limit");
+        if (accounts == null) {
+            context.status(400);
+            return;
+        }
+
+        try {
+            List<Integer> account_ids = new ArrayList<>();
+            for (String id : accounts.split(",")) {
+                account_ids.add(Integer.parseInt(id.trim()));
+            }
+            if (account_ids.size() > MessageService.MAX_TIMELINE_ACCOUNTS) {
+                context.status(400);
+                return;
+            }
+            int size = limit == null ? MessageService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+
+            context.json(messageService.getTimeline(account_ids, context.queryParam("before"), size));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException for accounts or limit, or a malformed cursor
+            context.status(400);
         }
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Set the ETag of a message list and answer If-None-Match.
+     * 
+     * The ETag is built from the generation the list is read at, so it is the 
+     * same for as long as the list cannot have changed. The format is part of 
+     * it too, since NDJSON and a JSON array are different representations. 
+     * The generation must be read before the messages are.
+     * 
+     * @param context the request context.
+     * @param generation the generation of the messages the response is built from.
+     * @return true if the client's copy is current and the response is a 304 with no body.
+     */
+    private boolean notModified(Context context, long generation) {
+        String etag = "\"" + etagNonce + "-" + generation + (acceptsNdjson(context) ? "-ndjson" : "") + "\"";
+        context.header(Header.ETAG, etag);
+        context.header(Header.VARY, Header.ACCEPT);
+
+        String ifNoneMatch = context.header(Header.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // If-None-Match uses the weak comparison, so a W/ prefix is ignored
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                context.status(304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @param context the request context.
+     * @return true if the client asked for newline-delimited JSON rather than a JSON array.
+     */
+    private static boolean acceptsNdjson(Context context) {
+        String accept = context.header("Accept");
+        return accept != null && accept.contains(MessageStreamWriter.NDJSON);
+    }
+
+
+    /**
+     * Set the response content type and stream messages to the response body as they are read.
+     * 
+     * The writer is opened before the messages are read, since it opens the JSON cache session they 
+     * are written through. If reading fails before anything has been sent, the DataAccessException 
+     * is rethrown so the client gets a 503. Once part of the list has been sent the status can no 
+     * longer change, so the connection is aborted instead of closing the array: the client sees a 
+     * broken response rather than a short list that looks complete.
+     * 
+     * @param context the request context.
+     * @param ndjson true for newline-delimited JSON, false for a JSON array.
+     * @param source reads the messages into the writer it is given.
+     * @throws IOException if the response could not be written.
+     * @throws DataAccessException if the messages could not be read and nothing has been sent yet.
+     */
+    private void stream(Context context, boolean ndjson, Consumer<MessageStreamWriter> source) throws IOException {
+        context.contentType(ndjson ? MessageStreamWriter.NDJSON : ContentType.APPLICATION_JSON.getMimeType());
+        MessageStreamWriter writer = new MessageStreamWriter(context.outputStream(), ndjson, messageService.openJsonSession());
+        try {
+            source.accept(writer);
+        } catch (DataAccessException e) {
+            if (!writer.hasFlushed()) {
+                throw e;
+            }
+            Request.getBaseRequest(context.req()).getHttpChannel().abort(e);
+            return;
+        }
+        writer.close();
+    }
+
+
+    /**
+     * Handler to expose runtime metrics.
+     * GET /metrics
+     * 
+     * The response body contains a JSON object of live gauges, such as the 
+     * connection pool's active, idle and waiting counts and its acquire 
+     * latency histogram, and the queue depth and wait times of the read and 
+     * write bulkheads.
+     * 
+     * @param context the context object handles information HTTP requests and generates responses within Javalin. It will
+     *            be available to this method automatically thanks to the app.put method.
+     */
+    private void metricsHandler(Context context) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connection_pool", ConnectionUtil.getPool().metrics());
+        metrics.put("account_service", accountService.metrics());
+        metrics.put("message_service", messageService.metrics());
+        Map<String, Object> bulkheads = new LinkedHashMap<>();
+        bulkheads.put("reads", reads.metrics());
+        bulkheads.put("writes", writes.metrics());
+        metrics.put("bulkheads", bulkheads);
+        metrics.put("virtual_threads", VirtualThreads.isEnabled());
+
+        context.json(metrics);
+    }
+}
@@ -1,16 +1,27 @@
 package DAO;
 
-import java.sql.Connection;
 import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import Model.Account;
-import Util.ConnectionUtil;
+import Util.ConcurrentBitSet;
+import Util.DataAccessException;
+import Util.UnitOfWork;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class AccountDAO {
 
+    /**
+     * Every account_id known to exist, loaded from the account table on first use and kept up to 
+     * date by insertAccount. Shared by all instances, since they all write to the same table.
+     */
+    private static volatile ConcurrentBitSet accountIds;
+    private static final ReentrantLock accountIdsLock = new ReentrantLock();
+
     /**
      * Add a account record into the database which matches the values contained in the account object.
      *
@@ -18,25 +29,27 @@ public class AccountDAO {
      * @return an account object with an id
      */
     public Account insertAccount(Account account) {
-        Connection connection = ConnectionUtil.getConnection();
-
-        try {
-            String sql = "INSERT INTO account (username, password) VALUES (?, ?)";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        String sql = "INSERT INTO account (username, password) VALUES (?, ?)";
 
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, account.getUsername());
             ps.setString(2, account.getPassword());
-            
+
             int numUpdated = ps.executeUpdate();
             if (numUpdated <= 0) {
                 return null;
             }
 
-            ResultSet pkeyResultSet = ps.getGeneratedKeys();
-
-            if (pkeyResultSet.next()) {
-                int account_id = pkeyResultSet.getInt("account_id");
-                return new Account(account_id, account.getUsername(), account.getPassword());
+            try (ResultSet pkeyResultSet = ps.getGeneratedKeys()) {
+                if (pkeyResultSet.next()) {
+                    int account_id = pkeyResultSet.getInt("account_id");
+                    ConcurrentBitSet ids = accountIds();
+                    if (ids != null) {
+                        ids.set(account_id);
+                    }
+                    return new Account(account_id, account.getUsername(), account.getPassword());
+                }
             }
 
         } catch (SQLException e) {
@@ -52,20 +65,138 @@ public class AccountDAO {
      *
      * @param username an account username
      * @return the account object, null if username does not exist
+     * @throws DataAccessException if the query failed, so that a failure is never cached as "no such user".
      */
     public Account getAccountByUsername(String username) {
-        Connection connection = ConnectionUtil.getConnection();
+        String sql = "SELECT * FROM account WHERE username = ?";
 
-        try {
-            String sql = "SELECT * FROM account WHERE username = ?";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
             ps.setString(1, username);
 
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return new Account(rs.getInt("account_id"), rs.getString("username"),
-                        rs.getString("password"));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new Account(rs.getInt("account_id"), rs.getString("username"),
+                            rs.getString("password"));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Pass every username in the account table to the sink, one row at a time.
+     *
+     * @param sink receives each username.
+     * @return false if the table could not be read.
+     */
+    public boolean forEachUsername(Consumer<String> sink) {
+        String sql = "SELECT username FROM account";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                sink.accept(rs.getString(1));
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Check whether an account exists, usually without querying the database.
+     *
+     * Ids in the in-memory set are known to exist. An id that is not in the set may still have 
+     * been created by another process, by SQL or since the set was loaded, so it is looked up in 
+     * the database and added to the set if it turns out to exist. Only that positive answer is 
+     * remembered. If the set or the lookup fails, the id is reported as known and the foreign key 
+     * on message.posted_by decides.
+     *
+     * @param account_id an account ID.
+     * @return false if the account does not exist.
+     */
+    public boolean isKnownAccountId(int account_id) {
+        ConcurrentBitSet ids = accountIds();
+        if (ids == null || ids.get(account_id)) {
+            return true;
+        }
+        if (account_id < 0) {
+            return false;
+        }
+
+        String sql = "SELECT 1 FROM account WHERE account_id = ?";
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setInt(1, account_id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    ids.set(account_id);
+                    return true;
+                }
+                return false;
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Load the set of known account ids now, at startup, instead of on the first isKnownAccountId call.
+     */
+    public void preloadAccountIds() {
+        accountIds();
+    }
+
+
+    /**
+     * @return the set of known account ids, loading it on first use, or null if it could not be loaded.
+     */
+    private static ConcurrentBitSet accountIds() {
+        ConcurrentBitSet ids = accountIds;
+        if (ids != null) {
+            return ids;
+        }
+
+        accountIdsLock.lock();
+        try {
+            if (accountIds == null) {
+                accountIds = loadAccountIds();
+            }
+            return accountIds;
+        } finally {
+            accountIdsLock.unlock();
+        }
+    }
+
+
+    private static ConcurrentBitSet loadAccountIds() {
+        String sql = "SELECT account_id FROM account";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            ConcurrentBitSet ids = new ConcurrentBitSet();
+            while (rs.next()) {
+                ids.set(rs.getInt(1));
             }
+            return ids;
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -0,0 +1,216 @@
+package DAO;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import Model.MessageChange;
+
+/**
+ * Keeps the change log readable in sequence order without serializing the transactions that
+ * write to it.
+ *
+ * Sequence numbers are handed out when a row is inserted into message_change, but transactions
+ * commit in whatever order they finish, so seq 11 can become visible before seq 10. A reader that
+ * had already moved past 11 would never see 10. Rather than hold one lock for the whole of every
+ * write transaction, the lock here is held only while a transaction inserts its message_change
+ * rows and records the seqs it was given as in flight. Everything below the oldest seq still in
+ * flight has committed or rolled back, so readers are only served up to there (see
+ * visibleSeq()); a rolled back seq simply leaves a gap.
+ *
+ * Committed changes are handed to their DAO's listener in the same order, once they are visible.
+ * Whichever committing thread finds no one else publishing drains every change that has become
+ * visible, outside the lock, so the listeners of concurrent transactions never run at once or out
+ * of order and never hold up another transaction's inserts.
+ */
+final class ChangeSequencer {
+
+    /**
+     * Appends rows to message_change, returning the changes it logged with their seqs.
+     */
+    @FunctionalInterface
+    interface Append {
+        List<MessageChange> run() throws SQLException;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private final TreeMap<Long, Pending> unpublished = new TreeMap<>();
+    private long lastAssigned;
+    private boolean seeded;
+    private boolean publishing;
+
+    /**
+     * A committed change waiting for the changes before it.
+     */
+    private static final class Pending {
+        final MessageChange change;
+        final MessageDAO.ChangeListener listener;
+
+        Pending(MessageChange change, MessageDAO.ChangeListener listener) {
+            this.change = change;
+            this.listener = listener;
+        }
+    }
+
+
+    /**
+     * Run an append to message_change and mark the seqs it was given as in flight. Every append
+     * must be followed by finish() once its transaction has committed or rolled back.
+     *
+     * @param append inserts the rows, inside the caller's transaction.
+     * @return the changes logged, with their seqs.
+     * @throws SQLException if the rows could not be inserted.
+     */
+    List<MessageChange> append(Append append) throws SQLException {
+        lock.lock();
+        try {
+            List<MessageChange> logged = append.run();
+            for (MessageChange change : logged) {
+                inFlight.add(change.getSeq());
+                lastAssigned = change.getSeq();
+            }
+            seeded = true;
+            return logged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * End a transaction's changes: they are no longer in flight, and if it committed they are
+     * published to the listener once every change before them has been.
+     *
+     * @param logged the changes returned by append() during the transaction.
+     * @param committed true if the transaction committed, false if it rolled back.
+     * @param listener the listener to tell of the changes, or null for none.
+     */
+    void finish(List<MessageChange> logged, boolean committed, MessageDAO.ChangeListener listener) {
+        lock.lock();
+        try {
+            for (MessageChange change : logged) {
+                inFlight.remove(change.getSeq());
+                if (committed && listener != null) {
+                    unpublished.put(change.getSeq(), new Pending(change, listener));
+                }
+            }
+            if (publishing) {
+                // the thread already publishing will pick these up
+                return;
+            }
+            publishing = true;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean done = false;
+        try {
+            while (true) {
+                List<Pending> ready;
+                lock.lock();
+                try {
+                    ready = takeVisible();
+                    if (ready.isEmpty()) {
+                        publishing = false;
+                        done = true;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                for (Pending pending : ready) {
+                    try {
+                        pending.listener.changed(pending.change);
+                    } catch (RuntimeException e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            if (!done) {
+                lock.lock();
+                try {
+                    publishing = false;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return false until seed() has been called or a change has been appended.
+     */
+    boolean isSeeded() {
+        lock.lock();
+        try {
+            return seeded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Start from the newest seq already in message_change, written before this process started.
+     * Ignored once a change has been appended, since the last seq handed out is known then.
+     *
+     * @param newest the largest seq in message_change, or 0 if it is empty.
+     */
+    void seed(long newest) {
+        lock.lock();
+        try {
+            if (!seeded) {
+                lastAssigned = newest;
+                seeded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the highest seq at or below which every change has committed or rolled back. Read
+     *         it before querying message_change, after seeding, and ignore any row above it.
+     */
+    long visibleSeq() {
+        lock.lock();
+        try {
+            return horizon();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Remove and return the unpublished changes that are visible, in seq order. Call with the lock held.
+     */
+    private List<Pending> takeVisible() {
+        NavigableMap<Long, Pending> visible = unpublished.headMap(horizon(), true);
+        List<Pending> ready = new ArrayList<>(visible.size());
+        for (Map.Entry<Long, Pending> entry : visible.entrySet()) {
+            ready.add(entry.getValue());
+        }
+        visible.clear();
+        return ready;
+    }
+
+
+    /**
+     * Call with the lock held. Seqs are handed out in increasing order under the lock, so when
+     * nothing is in flight every seq up to the last one handed out is settled.
+     */
+    private long horizon() {
+        return inFlight.isEmpty() ? lastAssigned : inFlight.first() - 1;
+    }
+}
@@ -7,39 +7,174 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import Model.Message;
-import Util.ConnectionUtil;
+import Model.MessageChange;
+import Util.DataAccessException;
+import Util.UnitOfWork;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class MessageDAO {
 
+    /**
+     * Number of rows fetched per round trip when streaming a result set.
+     */
+    private static final int STREAM_FETCH_SIZE = 256;
+
+    /**
+     * Maximum number of ids bound into one multi-get query; longer lists are split into several.
+     */
+    private static final int MULTI_GET_CHUNK_SIZE = 500;
+
+    /**
+     * Orders the appends to message_change, and what readers and listeners see of them, by 
+     * sequence number. Shared by all instances, since they all write to the same table.
+     */
+    private static final ChangeSequencer changeSequencer = new ChangeSequencer();
+
+    /**
+     * Codes for message_change.op.
+     */
+    private static final String CHANGE_INSERT = "I";
+    private static final String CHANGE_UPDATE = "U";
+    private static final String CHANGE_DELETE = "D";
+
+    /**
+     * Told of every change this DAO logs, once it has committed.
+     */
+    public interface ChangeListener {
+        void changed(MessageChange change);
+    }
+
+    private volatile ChangeListener changeListener;
+
+    /**
+     * Work run by inLoggedTransaction(), which collects the changes it logs.
+     */
+    @FunctionalInterface
+    private interface LoggedWork<T> {
+        T run(Connection connection, List<MessageChange> logged) throws SQLException;
+    }
+
+
+    /**
+     * Register the listener told of every change logged to message_change. It is called after the 
+     * change has committed and every change before it has committed or rolled back, so it hears 
+     * of changes in sequence order. No lock is held, but it may be called on the thread of 
+     * another write while that write's caller waits, so it must still be quick.
+     *
+     * @param listener the listener, or null for none.
+     */
+    public void setChangeListener(ChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+
     /**
      * Add a message record into the database which matches the values contained in the message object.
      *
+     * The insert is logged to message_change in the same transaction.
+     *
      * @param message a message object. the message object does not contain an message ID.
      * @return an message object with an id
      */
     public Message insertMessage(Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-
-        try {
-            String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setInt(1, message.getPosted_by());
-            ps.setString(2, message.getMessage_text());
-            ps.setLong(3, message.getTime_posted_epoch());
-            
-            int numUpdated = ps.executeUpdate();
-            if (numUpdated <= 0) {
+        String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            return inLoggedTransaction(uow, (connection, logged) -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, message.getPosted_by());
+                    ps.setString(2, message.getMessage_text());
+                    ps.setLong(3, message.getTime_posted_epoch());
+
+                    int numUpdated = ps.executeUpdate();
+                    if (numUpdated <= 0) {
+                        return null;
+                    }
+
+                    try (ResultSet pkeyResultSet = ps.getGeneratedKeys()) {
+                        if (pkeyResultSet.next()) {
+                            Message stored = new Message(pkeyResultSet.getInt(1), message.getPosted_by(),
+                                    message.getMessage_text(), message.getTime_posted_epoch());
+                            appendChanges(connection, CHANGE_INSERT, List.of(stored), logged);
+                            return stored;
+                        }
+                    }
+                }
                 return null;
-            }
+            });
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+
+        return null;
+    }
 
-            ResultSet pkeyResultSet = ps.getGeneratedKeys();
-            if (pkeyResultSet.next()) {
-                return new Message(pkeyResultSet.getInt(1), message.getPosted_by(), 
-                        message.getMessage_text(), message.getTime_posted_epoch());
-            }
+
+    /**
+     * Add several message records in one transaction, using a single JDBC batch.
+     *
+     * Messages whose posted_by does not refer to an existing account are skipped rather than 
+     * failing the whole batch on the foreign key. The inserts are logged to message_change in 
+     * the same transaction.
+     *
+     * @param messages message objects without message IDs.
+     * @return a list parallel to messages holding each stored message with its id, or null in the 
+     *         positions whose posted_by does not exist. Returns null if the batch failed as a whole.
+     */
+    public List<Message> insertMessages(List<Message> messages) {
+        String accountSql = "SELECT account_id FROM account WHERE account_id = ANY(?)";
+        String insertSql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            return inLoggedTransaction(uow, (connection, logged) -> {
+                Set<Integer> posters = new HashSet<>();
+                for (Message message : messages) {
+                    posters.add(message.getPosted_by());
+                }
+
+                Set<Integer> existing = new HashSet<>();
+                try (PreparedStatement ps = connection.prepareStatement(accountSql)) {
+                    ps.setArray(1, connection.createArrayOf("INTEGER", posters.toArray()));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            existing.add(rs.getInt(1));
+                        }
+                    }
+                }
+
+                List<Message> stored = new ArrayList<>(messages.size());
+                try (PreparedStatement ps = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Message message : messages) {
+                        if (existing.contains(message.getPosted_by())) {
+                            ps.setInt(1, message.getPosted_by());
+                            ps.setString(2, message.getMessage_text());
+                            ps.setLong(3, message.getTime_posted_epoch());
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+
+                    // generated keys come back in batch order
+                    try (ResultSet pkeyResultSet = ps.getGeneratedKeys()) {
+                        for (Message message : messages) {
+                            if (existing.contains(message.getPosted_by()) && pkeyResultSet.next()) {
+                                stored.add(new Message(pkeyResultSet.getInt(1), message.getPosted_by(),
+                                        message.getMessage_text(), message.getTime_posted_epoch()));
+                            } else {
+                                stored.add(null);
+                            }
+                        }
+                    }
+                }
+                appendChanges(connection, CHANGE_INSERT, stored, logged);
+                return stored;
+            });
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -48,33 +183,37 @@ public class MessageDAO {
         return null;
     }
 
-    
+
     /**
      * Update the message identified by the message id to the values contained in the message object.
      *
+     * The update and the read of the updated row are one statement, using H2's FINAL TABLE data 
+     * change delta table, so there is a single round trip and no window between the two. The 
+     * update is logged to message_change in the same transaction.
+     *
      * @param message_id a message ID.
      * @param message a message object. the message object does not contain an message ID.
-     * @return an updated message object with id
+     * @return an updated message object with id, null if message_id does not exist
      */
     public Message updateMessage(int message_id, Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-
-        try {
-            String sql = "UPDATE message SET message_text = ? WHERE message_id = ?";
-            PreparedStatement ps = connection.prepareStatement(sql, new int[] {1, 2, 3, 4});
-            ps.setString(1, message.getMessage_text());
-            ps.setInt(2, message_id);
-
-            int numUpdated = ps.executeUpdate();
-            if (numUpdated <= 0) {
+        String sql = "SELECT * FROM FINAL TABLE (UPDATE message SET message_text = ? WHERE message_id = ?)";
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            return inLoggedTransaction(uow, (connection, logged) -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setString(1, message.getMessage_text());
+                    ps.setInt(2, message_id);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            Message updated = mapMessage(rs);
+                            appendChanges(connection, CHANGE_UPDATE, List.of(updated), logged);
+                            return updated;
+                        }
+                    }
+                }
                 return null;
-            }
-
-            ResultSet pkeyResultSet = ps.getGeneratedKeys();
-            if (pkeyResultSet.next()) {
-                return new Message(pkeyResultSet.getInt(1), pkeyResultSet.getInt(2), 
-                        pkeyResultSet.getString(3), pkeyResultSet.getLong(4));
-            }
+            });
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
@@ -87,49 +226,54 @@ public class MessageDAO {
     /**
      * Delete the message identified by the message id from the message table.
      *
+     * The delete returns the removed row through H2's OLD TABLE data change delta table, so there 
+     * is a single round trip and no separate lookup that could race with another writer. The 
+     * delete is logged to message_change in the same transaction.
+     *
      * @param message_id a message ID.
      * @return the removed message object, if message_id exist
      */
     public Message deleteMessage(int message_id) {
-        Connection connection = ConnectionUtil.getConnection();
-        Message toDelete = this.getMessageById(message_id);
-
-        try {
-            String sql = "DELETE FROM message WHERE message_id = ?";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setInt(1, message_id);
-
-            int numUpdated = ps.executeUpdate();
-            if (numUpdated <= 0) {
+        String sql = "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id = ?)";
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            return inLoggedTransaction(uow, (connection, logged) -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setInt(1, message_id);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            Message deleted = mapMessage(rs);
+                            appendChanges(connection, CHANGE_DELETE, List.of(deleted), logged);
+                            return deleted;
+                        }
+                    }
+                }
                 return null;
-            }
+            });
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
 
-        return toDelete;
+        return null;
     }
 
 
     /**
      * Retrieve all messages from the message table.
-     * 
+     *
      * @return all messages.
      */
     public List<Message> getAllMessages() {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message";
 
-        try {
-            String sql = "SELECT * FROM message";
-            PreparedStatement ps = connection.prepareStatement(sql);
-
-            ResultSet rs = ps.executeQuery();
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
             while (rs.next()){
-                Message message = new Message(rs.getInt("message_id"), rs.getInt("posted_by"),
-                        rs.getString("message_text"), rs.getLong("time_posted_epoch"));
-                messages.add(message);
+                messages.add(mapMessage(rs));
             }
 
         } catch (SQLException e) {
@@ -140,28 +284,271 @@ public class MessageDAO {
     }
 
 
+    /**
+     * Stream every message in the message table, ordered by message ID, to the given sink.
+     *
+     * Rows are handed to the sink one at a time while the cursor is still open, so no list of all 
+     * messages is ever built.
+     *
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the query failed, so that a failure is never sent as a complete list.
+     */
+    public int streamAllMessages(Consumer<Message> sink) {
+        String sql = "SELECT * FROM message ORDER BY message_id";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            return stream(uow.getConnection(), ps, sink);
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+    }
+
+
+    /**
+     * Stream every message from a particular user (account_id), ordered by message ID, to the given sink.
+     *
+     * @param account_id a account ID.
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the query failed, so that a failure is never sent as a complete list.
+     */
+    public int streamMessagesFromAccountId(int account_id, Consumer<Message> sink) {
+        String sql = "SELECT * FROM message WHERE posted_by = ? ORDER BY message_id";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setInt(1, account_id);
+            return stream(uow.getConnection(), ps, sink);
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+    }
+
+
+    /**
+     * Stream every message posted in [since, until), ordered by (time_posted_epoch, message_id), to the given sink.
+     *
+     * This is a range scan over the idx_message_time index, so only the messages in the window are read.
+     *
+     * @param since the earliest time_posted_epoch to include.
+     * @param until the first time_posted_epoch to exclude.
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the query failed, so that a failure is never sent as a complete window.
+     */
+    public int streamMessagesInTimeRange(long since, long until, Consumer<Message> sink) {
+        String sql = "SELECT * FROM message WHERE time_posted_epoch >= ? AND time_posted_epoch < ? "
+                + "ORDER BY time_posted_epoch, message_id";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setLong(1, since);
+            ps.setLong(2, until);
+            return stream(uow.getConnection(), ps, sink);
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+    }
+
+
+    /**
+     * Retrieve one page of the messages posted in [since, until), ordered by (time_posted_epoch, message_id), 
+     * starting after the given position.
+     *
+     * Like getMessagesFromAccountIdBefore, this seeks the index to the cursor and reads at most limit entries in 
+     * index order, so every page costs the same however wide the window is.
+     *
+     * @param since the earliest time_posted_epoch to include; for pages after the first, the cursor's time.
+     * @param until the first time_posted_epoch to exclude.
+     * @param after_id among messages posted exactly at since, only those with a larger message ID are returned; 
+     *                 Integer.MIN_VALUE for the first page.
+     * @param limit the maximum number of messages to return.
+     * @return up to limit messages, oldest first.
+     * @throws DataAccessException if the query failed, so that a failure is never read as the end of the window.
+     */
+    public List<Message> getMessagesInTimeRange(long since, long until, int after_id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message WHERE time_posted_epoch >= ? AND time_posted_epoch < ? "
+                + "AND (time_posted_epoch > ? OR message_id > ?) "
+                + "ORDER BY time_posted_epoch, message_id LIMIT ?";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setLong(1, since);
+            ps.setLong(2, until);
+            ps.setLong(3, since);
+            ps.setInt(4, after_id);
+            ps.setInt(5, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return messages;
+    }
+
+
+    /**
+     * Retrieve one page of messages ordered by message ID, starting after the given message ID.
+     *
+     * This is a keyset (seek) query: it walks the primary key index from after_id instead of
+     * skipping over an offset, so every page costs the same however deep into the table it is.
+     *
+     * @param after_id only messages with a larger message ID are returned; 0 starts from the beginning.
+     * @param limit the maximum number of messages to return.
+     * @return up to limit messages, ordered by message ID.
+     * @throws DataAccessException if the query failed, so that a failure is never read as the last page.
+     */
+    public List<Message> getMessagesAfterId(int after_id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message WHERE message_id > ? ORDER BY message_id LIMIT ?";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setInt(1, after_id);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return messages;
+    }
+
+
+    /**
+     * Retrieve one page of an account's messages, newest first, starting before the given position.
+     *
+     * Messages are ordered by (time_posted_epoch, message_id) descending, which matches the
+     * idx_message_posted_by_time_desc index exactly: the query seeks to the cursor and reads at most
+     * limit index entries, so a page costs the same however many messages the account holds. The
+     * cursor is spelled out as two predicates instead of a row-value comparison because H2 only uses
+     * the first of them to bound the index range.
+     *
+     * @param account_id a account ID.
+     * @param before_time only messages posted at or before this time are returned; null starts from the newest.
+     * @param before_id among messages posted exactly at before_time, only those with a smaller message ID are returned.
+     * @param limit the maximum number of messages to return.
+     * @return up to limit messages, newest first.
+     * @throws DataAccessException if the query failed, so that a failure is never read as the end of the timeline.
+     */
+    public List<Message> getMessagesFromAccountIdBefore(int account_id, Long before_time, int before_id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        String sql = before_time == null
+                ? "SELECT * FROM message WHERE posted_by = ? "
+                        + "ORDER BY posted_by DESC, time_posted_epoch DESC, message_id DESC LIMIT ?"
+                : "SELECT * FROM message WHERE posted_by = ? AND time_posted_epoch <= ? "
+                        + "AND (time_posted_epoch < ? OR message_id < ?) "
+                        + "ORDER BY posted_by DESC, time_posted_epoch DESC, message_id DESC LIMIT ?";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            int i = 1;
+            ps.setInt(i++, account_id);
+            if (before_time != null) {
+                ps.setLong(i++, before_time);
+                ps.setLong(i++, before_time);
+                ps.setInt(i++, before_id);
+            }
+            ps.setInt(i, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return messages;
+    }
+
+
+    /**
+     * Retrieve many messages by message ID.
+     *
+     * Each chunk of ids is bound as one array parameter to "message_id = ANY(?)", which H2 answers with 
+     * primary key lookups, so a list of ids costs one round trip per MULTI_GET_CHUNK_SIZE ids rather 
+     * than one per id.
+     *
+     * @param message_ids the message IDs to look up, without duplicates.
+     * @return the messages that exist, in no particular order.
+     * @throws DataAccessException if any chunk failed, so that its ids are never cached as missing.
+     */
+    public List<Message> getMessagesByIds(List<Integer> message_ids) {
+        List<Message> messages = new ArrayList<>(message_ids.size());
+        String sql = "SELECT * FROM message WHERE message_id = ANY(?)";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            for (int from = 0; from < message_ids.size(); from += MULTI_GET_CHUNK_SIZE) {
+                List<Integer> chunk = message_ids.subList(from, Math.min(from + MULTI_GET_CHUNK_SIZE, message_ids.size()));
+                ps.setArray(1, uow.getConnection().createArrayOf("INTEGER", chunk.toArray()));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        messages.add(mapMessage(rs));
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return messages;
+    }
+
+
     /**
      * Retrieve a specific message using its message ID.
      *
      * @param message_id a message ID.
      * @return the message object, null if message_id does not exist
+     * @throws DataAccessException if the query failed, so that a failure is never cached as "not found".
      */
     public Message getMessageById(int message_id) {
-        Connection connection = ConnectionUtil.getConnection();
+        String sql = "SELECT * FROM message WHERE message_id = ?";
 
-        try {
-            String sql = "SELECT * FROM message WHERE message_id = ?";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
             ps.setInt(1, message_id);
 
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return new Message(rs.getInt("message_id"), rs.getInt("posted_by"),
-                        rs.getString("message_text"), rs.getLong("time_posted_epoch"));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
             }
 
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            throw new DataAccessException(e);
         }
 
         return null;
@@ -170,24 +557,22 @@ public class MessageDAO {
 
     /**
      * Retrieve all messages from a particular user (account_id).
-     * 
+     *
      * @param account_id a account ID.
      * @return all messages from the user
      */
     public List<Message> getMessagesFromAccountId(int account_id) {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message WHERE posted_by = ?";
 
-        try {
-            String sql = "SELECT * FROM message WHERE posted_by = ?";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
             ps.setInt(1, account_id);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Message message = new Message(rs.getInt("message_id"), rs.getInt("posted_by"),
-                        rs.getString("message_text"), rs.getLong("time_posted_epoch"));
-                messages.add(message);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
             }
 
         } catch (SQLException e) {
@@ -195,4 +580,241 @@ public class MessageDAO {
         }
         return messages;
     }
+
+
+    /**
+     * Retrieve the changes logged after a sequence number, oldest first.
+     *
+     * Each change carries the message as it is now, joined from the message table, or null if 
+     * the message has since been deleted. Changes newer than a transaction that is still in 
+     * flight are left for a later call, so that the older change is not skipped once it commits.
+     *
+     * @param since_seq only changes with a larger sequence number are returned.
+     * @param limit the maximum number of changes to return.
+     * @return the changes.
+     * @throws DataAccessException if the query failed, so that a failure is never read as "no changes".
+     */
+    public List<MessageChange> getChangesAfter(long since_seq, int limit) {
+        List<MessageChange> changes = new ArrayList<>();
+        String sql = "SELECT c.seq, c.op, c.message_id, m.message_id AS current_id, m.posted_by, m.message_text, "
+                + "m.time_posted_epoch FROM message_change c LEFT JOIN message m ON m.message_id = c.message_id "
+                + "WHERE c.seq > ? AND c.seq <= ? ORDER BY c.seq LIMIT ?";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setLong(1, since_seq);
+            ps.setLong(2, visibleSeq(uow.getConnection()));
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int message_id = rs.getInt("message_id");
+                    Message message = null;
+                    if (rs.getObject("current_id") != null) {
+                        message = new Message(message_id, rs.getInt("posted_by"), rs.getString("message_text"),
+                                rs.getLong("time_posted_epoch"));
+                    }
+                    changes.add(new MessageChange(rs.getLong("seq"), opName(rs.getString("op")), message_id, message));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return changes;
+    }
+
+
+    /**
+     * @return the oldest and newest sequence numbers still in message_change, both 0 if it is empty. 
+     *         The newest is capped as getChangesAfter() would be, so it is never past a change in flight.
+     * @throws DataAccessException if the query failed.
+     */
+    public long[] getChangeSeqRange() {
+        String sql = "SELECT COALESCE(MIN(seq), 0), COALESCE(MAX(seq), 0) FROM message_change";
+
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            long visible = visibleSeq(uow.getConnection());
+            try (PreparedStatement ps = uow.getConnection().prepareStatement(sql);
+                    ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new long[] { rs.getLong(1), Math.min(rs.getLong(2), visible) };
+                }
+            }
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new DataAccessException(e);
+        }
+
+        return new long[] { 0, 0 };
+    }
+
+
+    /**
+     * Drop all but the newest changes from message_change.
+     *
+     * @param retained the number of most recent changes to keep.
+     * @return the number of changes dropped.
+     */
+    public int pruneChanges(long retained) {
+        String sql = "DELETE FROM message_change WHERE seq <= (SELECT MAX(seq) FROM message_change) - ?";
+
+        try (UnitOfWork uow = UnitOfWork.begin();
+                PreparedStatement ps = uow.getConnection().prepareStatement(sql)) {
+            ps.setLong(1, retained);
+            return ps.executeUpdate();
+
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+
+        return 0;
+    }
+
+
+    private static String opName(String op) {
+        switch (op) {
+            case CHANGE_INSERT:
+                return MessageChange.INSERT;
+            case CHANGE_UPDATE:
+                return MessageChange.UPDATE;
+            default:
+                return MessageChange.DELETE;
+        }
+    }
+
+
+    /**
+     * Run work that appends to message_change in a transaction, then tell changeSequencer it 
+     * has ended so that its changes become readable, and are passed to the change listener, in 
+     * sequence order. It must not be called inside an outer transaction, since its changes 
+     * would be taken as committed before the outer one commits.
+     *
+     * @param uow the unit of work to run in.
+     * @param work the work to run.
+     * @return whatever the work returns.
+     * @throws SQLException if the work or the commit fails.
+     */
+    private <T> T inLoggedTransaction(UnitOfWork uow, LoggedWork<T> work) throws SQLException {
+        List<MessageChange> logged = new ArrayList<>();
+        boolean committed = false;
+        try {
+            T result = uow.inTransaction(connection -> work.run(connection, logged));
+            committed = true;
+            return result;
+        } finally {
+            changeSequencer.finish(logged, committed, changeListener);
+        }
+    }
+
+
+    /**
+     * @param connection a connection to read message_change through, the first time only.
+     * @return the newest sequence number that readers of message_change may be given.
+     * @throws SQLException if message_change could not be read.
+     */
+    private static long visibleSeq(Connection connection) throws SQLException {
+        if (!changeSequencer.isSeeded()) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM message_change");
+                    ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                changeSequencer.seed(rs.getLong(1));
+            }
+        }
+        return changeSequencer.visibleSeq();
+    }
+
+
+    /**
+     * Log a change to each of the messages, in order. The rows are inserted through 
+     * changeSequencer, which marks their sequence numbers in flight until the transaction ends.
+     *
+     * @param connection the connection of the transaction making the changes.
+     * @param op one of the CHANGE_ codes.
+     * @param messages the changed messages; null entries are skipped.
+     * @param logged receives each logged change, with the sequence number it was given.
+     * @throws SQLException if the log could not be written.
+     */
+    private static void appendChanges(Connection connection, String op, List<Message> messages,
+            List<MessageChange> logged) throws SQLException {
+        String sql = "INSERT INTO message_change (message_id, op) VALUES (?, ?)";
+
+        logged.addAll(changeSequencer.append(() -> {
+            List<MessageChange> appended = new ArrayList<>(messages.size());
+            try (PreparedStatement ps = connection.prepareStatement(sql, new String[] { "seq" })) {
+                for (Message message : messages) {
+                    if (message != null) {
+                        ps.setInt(1, message.getMessage_id());
+                        ps.setString(2, op);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+
+                // generated keys come back in batch order
+                try (ResultSet seqResultSet = ps.getGeneratedKeys()) {
+                    for (Message message : messages) {
+                        if (message != null && seqResultSet.next()) {
+                            appended.add(new MessageChange(seqResultSet.getLong(1), opName(op), message.getMessage_id(), message));
+                        }
+                    }
+                }
+            }
+            return appended;
+        }));
+    }
+
+
+    /**
+     * Build a message from the current row of a result set over the message table.
+     *
+     * @param rs a result set positioned on a row.
+     * @return the message in that row.
+     * @throws SQLException if a column could not be read.
+     */
+    private static Message mapMessage(ResultSet rs) throws SQLException {
+        return new Message(rs.getInt("message_id"), rs.getInt("posted_by"),
+                rs.getString("message_text"), rs.getLong("time_posted_epoch"));
+    }
+
+
+    /**
+     * Run a query with a forward-only cursor and hand each row to the sink as it is read.
+     *
+     * H2 materializes whole result sets in memory unless lazy query execution is on, so it is 
+     * switched on for the duration of the scan and back off afterwards.
+     *
+     * @param connection the connection the statement belongs to.
+     * @param ps a prepared query over the message table, with its parameters set.
+     * @param sink receives each message in turn.
+     * @return the number of rows streamed.
+     * @throws SQLException if the query fails.
+     */
+    private static int stream(Connection connection, PreparedStatement ps, Consumer<Message> sink) throws SQLException {
+        setLazyQueryExecution(connection, true);
+        try {
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(mapMessage(rs));
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            setLazyQueryExecution(connection, false);
+        }
+    }
+
+
+    private static void setLazyQueryExecution(Connection connection, boolean lazy) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SET LAZY_QUERY_EXECUTION " + lazy)) {
+            ps.execute();
+        }
+    }
 }
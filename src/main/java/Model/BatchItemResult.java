@@ -0,0 +1,118 @@
+package Model;
+
+import java.util.Objects;
+
+/**
+ * This is a class that models the outcome of one item in a batch request.
+ */
+public class BatchItemResult {
+    /**
+     * The position of the item in the request, starting at 0.
+     */
+    public int index;
+    /**
+     * The stored message, including its generated message_id, or null if the item was rejected.
+     */
+    public Message message;
+    /**
+     * Why the item was rejected, or null if it was stored.
+     */
+    public String error;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public BatchItemResult(){
+    }
+    /**
+     * @param index
+     * @param message
+     * @param error
+     */
+    public BatchItemResult(int index, Message message, String error) {
+        this.index = index;
+        this.message = message;
+        this.error = error;
+    }
+    /**
+     * @param index the position of the item in the request.
+     * @param message the stored message.
+     * @return a result for an item that was stored.
+     */
+    public static BatchItemResult created(int index, Message message) {
+        return new BatchItemResult(index, message, null);
+    }
+    /**
+     * @param index the position of the item in the request.
+     * @param error why the item was rejected.
+     * @return a result for an item that was rejected.
+     */
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+    /**
+     * @return index
+     */
+    public int getIndex() {
+        return index;
+    }
+    /**
+     * @param index
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    /**
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+    /**
+     * @param message
+     */
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+    /**
+     * @return error
+     */
+    public String getError() {
+        return error;
+    }
+    /**
+     * @param error
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+    /**
+     * @param o the other object.
+     * @return true if o is equal to this object.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BatchItemResult result = (BatchItemResult) o;
+        return index == result.index && Objects.equals(message, result.message) && Objects.equals(error, result.error);
+    }
+    /**
+     * @return a hash code consistent with equals.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, message, error);
+    }
+    /**
+     * @return a String representation of this class.
+     */
+    @Override
+    public String toString() {
+        return "BatchItemResult{" +
+                "index=" + index +
+                ", message=" + message +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
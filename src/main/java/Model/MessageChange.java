@@ -0,0 +1,127 @@
+package Model;
+
+import java.util.Objects;
+
+/**
+ * This is a class that models one entry of the message change feed.
+ */
+public class MessageChange {
+    public static final String INSERT = "insert";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    /**
+     * The position of this change in the feed. Later changes have larger sequence numbers.
+     */
+    public long seq;
+    /**
+     * One of insert, update or delete.
+     */
+    public String op;
+    /**
+     * The ID of the message that changed.
+     */
+    public int message_id;
+    /**
+     * The message as it is now, or null if it has since been deleted; a later delete 
+     * change for the same message_id follows in the feed.
+     */
+    public Message message;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageChange(){
+    }
+    /**
+     * @param seq
+     * @param op
+     * @param message_id
+     * @param message
+     */
+    public MessageChange(long seq, String op, int message_id, Message message) {
+        this.seq = seq;
+        this.op = op;
+        this.message_id = message_id;
+        this.message = message;
+    }
+    /**
+     * @return seq
+     */
+    public long getSeq() {
+        return seq;
+    }
+    /**
+     * @param seq
+     */
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+    /**
+     * @return op
+     */
+    public String getOp() {
+        return op;
+    }
+    /**
+     * @param op
+     */
+    public void setOp(String op) {
+        this.op = op;
+    }
+    /**
+     * @return message_id
+     */
+    public int getMessage_id() {
+        return message_id;
+    }
+    /**
+     * @param message_id
+     */
+    public void setMessage_id(int message_id) {
+        this.message_id = message_id;
+    }
+    /**
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+    /**
+     * @param message
+     */
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+    /**
+     * @param o the other object.
+     * @return true if o is equal to this object.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageChange change = (MessageChange) o;
+        return seq == change.seq && message_id == change.message_id && Objects.equals(op, change.op)
+                && Objects.equals(message, change.message);
+    }
+    /**
+     * @return a hash code consistent with equals.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(seq, op, message_id, message);
+    }
+    /**
+     * @return a String representation of this class.
+     */
+    @Override
+    public String toString() {
+        return "MessageChange{" +
+                "seq=" + seq +
+                ", op='" + op + '\'' +
+                ", message_id=" + message_id +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package Model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This is a class that models one page of the message change feed.
+ */
+public class MessageChangePage {
+    /**
+     * The changes on this page, oldest first.
+     */
+    public List<MessageChange> changes;
+    /**
+     * The sequence number to send back as since_seq for the following changes.
+     */
+    public long next_seq;
+    /**
+     * True if more changes follow straight away, false if the client has caught up.
+     */
+    public boolean has_more;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageChangePage(){
+    }
+    /**
+     * @param changes
+     * @param next_seq
+     * @param has_more
+     */
+    public MessageChangePage(List<MessageChange> changes, long next_seq, boolean has_more) {
+        this.changes = changes;
+        this.next_seq = next_seq;
+        this.has_more = has_more;
+    }
+    /**
+     * @return changes
+     */
+    public List<MessageChange> getChanges() {
+        return changes;
+    }
+    /**
+     * @param changes
+     */
+    public void setChanges(List<MessageChange> changes) {
+        this.changes = changes;
+    }
+    /**
+     * @return next_seq
+     */
+    public long getNext_seq() {
+        return next_seq;
+    }
+    /**
+     * @param next_seq
+     */
+    public void setNext_seq(long next_seq) {
+        this.next_seq = next_seq;
+    }
+    /**
+     * @return has_more
+     */
+    public boolean isHas_more() {
+        return has_more;
+    }
+    /**
+     * @param has_more
+     */
+    public void setHas_more(boolean has_more) {
+        this.has_more = has_more;
+    }
+    /**
+     * @param o the other object.
+     * @return true if o is equal to this object.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageChangePage page = (MessageChangePage) o;
+        return next_seq == page.next_seq && has_more == page.has_more && Objects.equals(changes, page.changes);
+    }
+    /**
+     * @return a hash code consistent with equals.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(changes, next_seq, has_more);
+    }
+    /**
+     * @return a String representation of this class.
+     */
+    @Override
+    public String toString() {
+        return "MessageChangePage{" +
+                "changes=" + changes +
+                ", next_seq=" + next_seq +
+                ", has_more=" + has_more +
+                '}';
+    }
+}
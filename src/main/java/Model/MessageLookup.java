@@ -0,0 +1,84 @@
+package Model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This is a class that models the result of looking up a list of messages by message_id.
+ */
+public class MessageLookup {
+    /**
+     * The messages that were found, in the order their ids were requested.
+     */
+    public List<Message> messages;
+    /**
+     * The requested ids that do not exist, in the order they were requested.
+     */
+    public List<Integer> missing_ids;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageLookup(){
+    }
+    /**
+     * @param messages
+     * @param missing_ids
+     */
+    public MessageLookup(List<Message> messages, List<Integer> missing_ids) {
+        this.messages = messages;
+        this.missing_ids = missing_ids;
+    }
+    /**
+     * @return messages
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+    /**
+     * @param messages
+     */
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+    /**
+     * @return missing_ids
+     */
+    public List<Integer> getMissing_ids() {
+        return missing_ids;
+    }
+    /**
+     * @param missing_ids
+     */
+    public void setMissing_ids(List<Integer> missing_ids) {
+        this.missing_ids = missing_ids;
+    }
+    /**
+     * @param o the other object.
+     * @return true if o is equal to this object.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageLookup lookup = (MessageLookup) o;
+        return Objects.equals(messages, lookup.messages) && Objects.equals(missing_ids, lookup.missing_ids);
+    }
+    /**
+     * @return a hash code consistent with equals.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(messages, missing_ids);
+    }
+    /**
+     * @return a String representation of this class.
+     */
+    @Override
+    public String toString() {
+        return "MessageLookup{" +
+                "messages=" + messages +
+                ", missing_ids=" + missing_ids +
+                '}';
+    }
+}
@@ -2,12 +2,34 @@ package Service;
 
 import Model.Account;
 import DAO.AccountDAO;
+import Util.BoundedCache;
+import Util.DataAccessException;
+import Util.ScalableBloomFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AccountService {
     AccountDAO accountDAO;
+    /**
+     * Username-keyed cache of login credentials. Unknown usernames are cached too, briefly.
+     */
+    BoundedCache<String, Credential> credentialCache;
+    /**
+     * Every username in the account table, as a "definitely free / maybe taken" filter. Null if it 
+     * could not be built, in which case every username is looked up.
+     */
+    ScalableBloomFilter usernameFilter;
+
+    private final LongAdder definitelyFree = new LongAdder();
+    private final LongAdder maybeTaken = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
 
     public AccountService() {
-        accountDAO = new AccountDAO();
+        this(new AccountDAO());
     }
 
 
@@ -19,6 +41,19 @@ public class AccountService {
      */
     public AccountService(AccountDAO accountDAO) {
         this.accountDAO = accountDAO;
+        this.credentialCache = new BoundedCache<>(
+                Integer.getInteger("accounts.cache.maximumSize", 100_000),
+                Long.getLong("accounts.cache.ttlMillis", 300_000),
+                Long.getLong("accounts.cache.negativeTtlMillis", 5_000));
+        this.usernameFilter = buildUsernameFilter(accountDAO);
+    }
+
+
+    private static ScalableBloomFilter buildUsernameFilter(AccountDAO accountDAO) {
+        ScalableBloomFilter filter = new ScalableBloomFilter(
+                Integer.getInteger("accounts.usernameFilter.initialCapacity", 100_000),
+                Double.parseDouble(System.getProperty("accounts.usernameFilter.falsePositiveRate", "0.01")));
+        return accountDAO.forEachUsername(filter::add) ? filter : null;
     }
 
     
@@ -28,28 +63,78 @@ public class AccountService {
      * The registration will be successful if and only if the username is not 
      * blank, the password is at least 4 characters long, and an Account with 
      * that username does not already exist
+     * 
+     * A username the filter reports as maybe taken is confirmed with a lookup first, so a 
+     * duplicate registration is answered without attempting the insert. The unique constraint 
+     * on account.username still catches two concurrent registrations of the same name.
      *
      * @param account an object representing a new account.
      * @return the newly added account if the add operation was successful, including the account_id. 
      */
     public Account insertAccount(Account account) {
         if (account.username.length() > 0 && account.password.length() >= 4) {
+            if (!isUsernameAvailable(account.username)) {
+                return null;
+            }
+
             // username is always unique per the account table
-            return accountDAO.insertAccount(account);
+            Account created = accountDAO.insertAccount(account);
+            if (created != null) {
+                credentialCache.put(created.username, Credential.of(created));
+                if (usernameFilter != null) {
+                    usernameFilter.add(created.username);
+                }
+            }
+            return created;
         }
 
         return null;
     }
 
 
+    /**
+     * Check whether a username can still be registered.
+     * 
+     * Most free usernames are answered from the username filter alone; only those it reports 
+     * as maybe taken are looked up, through the credential cache.
+     *
+     * @param username an account username
+     * @return true if no account has this username and it is not blank
+     * @throws DataAccessException if the username had to be looked up and could not be.
+     */
+    public boolean isUsernameAvailable(String username) {
+        if (username == null || username.isEmpty()) {
+            return false;
+        }
+
+        if (usernameFilter != null && !usernameFilter.mightContain(username)) {
+            definitelyFree.increment();
+            return true;
+        }
+
+        maybeTaken.increment();
+        boolean available = getAccountByUsername(username) == null;
+        if (available) {
+            falsePositives.increment();
+        }
+        return available;
+    }
+
+
     /**
      * Retrieve a specific account using its username.
      *
      * @param username an account username
-     * @return the account object, null if username does not exist
+     * @return the account object, null if username does not exist or is blank
+     * @throws DataAccessException if the account could not be read; nothing is cached then.
      */
     public Account getAccountByUsername(String username) {
-        return accountDAO.getAccountByUsername(username);
+        if (username == null || username.isEmpty()) {
+            return null;
+        }
+
+        Credential credential = credentialCache.get(username, this::loadCredential);
+        return credential == null ? null : credential.toAccount(username);
     }
     
 
@@ -58,16 +143,75 @@ public class AccountService {
      * 
      * The login will be successful if and only if the username and password provided 
      * in the request body JSON match a real account existing on the database. 
+     * 
+     * Credentials are read through the credential cache, so repeated logins 
+     * for the same username do not query the database.
      *
      * @param username an account username
-     * @return the account object, null if username does not exist
+     * @return the account object, null if username does not exist or is blank
+     * @throws DataAccessException if the account could not be read; nothing is cached then.
      */
     public Account login(Account account) {
-        Account acc = accountDAO.getAccountByUsername(account.username);
-        if (acc != null && acc.username.equals(account.username) && acc.password.equals(account.password)) {
-            return acc;
+        if (account.username == null || account.username.isEmpty()) {
+            return null;
+        }
+
+        Credential credential = credentialCache.get(account.username, this::loadCredential);
+        if (credential != null && account.password != null && credential.matches(account.password)) {
+            return credential.toAccount(account.username);
         }
 
         return null;
     }
+
+
+    /**
+     * @return live gauges for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("credential_cache", credentialCache.metrics());
+        Map<String, Object> filter = new LinkedHashMap<>();
+        if (usernameFilter != null) {
+            filter.putAll(usernameFilter.metrics());
+        }
+        filter.put("definitely_free", definitelyFree.sum());
+        filter.put("maybe_taken", maybeTaken.sum());
+        filter.put("false_positives", falsePositives.sum());
+        out.put("username_filter", filter);
+        return out;
+    }
+
+
+    private Credential loadCredential(String username) {
+        Account account = accountDAO.getAccountByUsername(username);
+        return account == null ? null : Credential.of(account);
+    }
+
+
+    /**
+     * The cached form of an account: just its id and its password as UTF-8 bytes. The username is 
+     * already the cache key, so it is not stored a second time.
+     */
+    static final class Credential {
+        final int account_id;
+        final byte[] password;
+
+        private Credential(int account_id, byte[] password) {
+            this.account_id = account_id;
+            this.password = password;
+        }
+
+        static Credential of(Account account) {
+            return new Credential(account.account_id, account.password.getBytes(StandardCharsets.UTF_8));
+        }
+
+        boolean matches(String candidate) {
+            return MessageDigest.isEqual(password, candidate.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Account toAccount(String username) {
+            return new Account(account_id, username, new String(password, StandardCharsets.UTF_8));
+        }
+    }
 }
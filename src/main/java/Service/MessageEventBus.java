@@ -0,0 +1,501 @@
+package Service;
+
+import Model.Message;
+import Util.JsonCodec;
+import Util.VirtualThreads;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pushes message changes to live subscribers, such as the clients of GET /messages/stream.
+ *
+ * Publishers write each change into a ring buffer, one at a time under a lock, so the ring has a
+ * single writer and publishing never waits for a subscriber. A single dispatcher thread follows
+ * the ring and fans each event out to the subscribers that want it: everyone without a filter,
+ * plus those filtering on the event's posted_by, which are indexed so that filtered subscribers
+ * cost nothing for other accounts' events. Each event is encoded to JSON once, when published.
+ *
+ * Every subscriber has its own bounded buffer, allocated only while it has events waiting, and is
+ * drained by a small shared pool of sender threads. When a buffer is full the slow consumer policy
+ * applies: DISCONNECT aborts the subscriber's connection, and DROP discards the event and later
+ * tells the subscriber how many it missed. An idle subscriber holds no buffer and no thread, and
+ * is sent a heartbeat now and then so dead connections are noticed.
+ *
+ * Sends block, so a client that stops reading would keep a sender thread for as long as its
+ * socket stays open, and a few of them would stall every other subscriber. The dispatcher
+ * therefore also watches the sends in progress: one that has not finished within the write
+ * timeout has its connection aborted, which fails the blocked send and frees the thread.
+ */
+public class MessageEventBus {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    /**
+     * Sent under DROP before the next event, with the number of events the subscriber missed.
+     */
+    public static final String DROPPED = "dropped";
+
+    /**
+     * What to do with a subscriber whose buffer is full.
+     */
+    public enum SlowConsumerPolicy {
+        DROP, DISCONNECT
+    }
+
+    /**
+     * Where a subscriber's events go, such as an SSE connection. Calls for one subscriber never overlap.
+     */
+    public interface Sink {
+        void send(String event, String data, String id);
+
+        void sendComment(String comment);
+
+        void close();
+
+        /**
+         * Drop the connection at once, failing any send blocked on it.
+         */
+        void abort();
+    }
+
+    /**
+     * Shared by every instance. Each subscriber is queued at most once at a time, so the queue is
+     * bounded by the number of subscribers.
+     */
+    private static final ExecutorService SEND_EXECUTOR = newSendExecutor(
+            Integer.getInteger("messages.stream.senderThreads", 4));
+
+    private final Event[] ring;
+    private final int mask;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    /**
+     * Sequence number of the newest event in the ring; events are numbered from 1.
+     */
+    private volatile long published;
+    /**
+     * Sequence number of the newest event fanned out. Only touched by the dispatcher.
+     */
+    private long dispatched;
+
+    private final int bufferSize;
+    private final SlowConsumerPolicy policy;
+    private final long heartbeatNanos;
+    private final long writeTimeoutNanos;
+
+    private final Set<Subscription> unfiltered = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, Set<Subscription>> byPostedBy = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ReentrantLock startLock = new ReentrantLock();
+    private volatile Thread dispatcher;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+
+    /**
+     * @param ringSize the number of events the ring holds, rounded up to a power of two.
+     * @param bufferSize the most events waiting to be sent to one subscriber.
+     * @param policy what to do with a subscriber whose buffer is full.
+     * @param heartbeatMillis how often idle subscribers are sent a heartbeat.
+     * @param writeTimeoutMillis how long one send may block before the subscriber is aborted.
+     */
+    public MessageEventBus(int ringSize, int bufferSize, SlowConsumerPolicy policy, long heartbeatMillis,
+            long writeTimeoutMillis) {
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.ring = new Event[capacity];
+        this.mask = capacity - 1;
+        this.bufferSize = bufferSize;
+        this.policy = policy;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+    }
+
+
+    /**
+     * Publish a change to every interested subscriber. Does nothing if there are none.
+     *
+     * @param type one of CREATED, UPDATED or DELETED.
+     * @param message the message as it now is, or as it was when deleted; null publishes nothing.
+     * @param change_seq the change's message_change.seq, sent as the event id so that a client can 
+     *            resume from it with GET /messages/changes?since_seq=.
+     */
+    public void publish(String type, Message message, long change_seq) {
+        if (message == null || subscriberCount.get() == 0) {
+            return;
+        }
+
+        String json = JsonCodec.javalinMapper().toJsonString(message, Message.class);
+        publishLock.lock();
+        try {
+            long seq = published + 1;
+            ring[(int) (seq & mask)] = new Event(seq, change_seq, type, message.getPosted_by(), json);
+            published = seq;
+        } finally {
+            publishLock.unlock();
+        }
+        publishedCount.increment();
+        LockSupport.unpark(dispatcher);
+    }
+
+
+    /**
+     * @param posted_by only events for messages posted by this account, or null for every event.
+     * @param sink where the events go.
+     * @return the subscription, to be closed when the subscriber goes away.
+     */
+    public Subscription subscribe(Integer posted_by, Sink sink) {
+        startDispatcher();
+        Subscription subscription = new Subscription(posted_by, sink);
+        if (posted_by == null) {
+            unfiltered.add(subscription);
+        } else {
+            // added inside compute, so that it cannot land in a set unsubscribe() is removing
+            byPostedBy.compute(posted_by, (key, subscriptions) -> {
+                Set<Subscription> set = subscriptions != null ? subscriptions : ConcurrentHashMap.newKeySet();
+                set.add(subscription);
+                return set;
+            });
+        }
+        subscriberCount.incrementAndGet();
+        return subscription;
+    }
+
+
+    private void unsubscribe(Subscription subscription) {
+        if (subscription.posted_by == null) {
+            unfiltered.remove(subscription);
+        } else {
+            byPostedBy.computeIfPresent(subscription.posted_by, (key, subscriptions) -> {
+                subscriptions.remove(subscription);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+
+    private void startDispatcher() {
+        if (dispatcher != null) {
+            return;
+        }
+
+        startLock.lock();
+        try {
+            if (dispatcher == null) {
+                // start from the newest event; subscribers only see what is published after they join
+                dispatched = published;
+                Thread thread = new Thread(this::dispatch, "message-stream-dispatch");
+                thread.setDaemon(true);
+                thread.start();
+                dispatcher = thread;
+            }
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+
+    private void dispatch() {
+        // a stalled send is noticed within one and a half write timeouts
+        long checkNanos = Math.max(1, Math.min(heartbeatNanos, writeTimeoutNanos / 2));
+        long lastHeartbeat = System.nanoTime();
+        long lastCheck = lastHeartbeat;
+        while (true) {
+            if (dispatched == published) {
+                LockSupport.parkNanos(this, checkNanos);
+            }
+
+            long target = published;
+            while (dispatched < target) {
+                long seq = dispatched + 1;
+                Event event = ring[(int) (seq & mask)];
+                if (event == null || event.seq != seq) {
+                    // publishers lapped the dispatcher: events were lost for everyone
+                    overruns.increment();
+                    forEachSubscription(subscription -> subscription.missed(1));
+                    dispatched = seq;
+                    continue;
+                }
+                unfiltered.forEach(subscription -> subscription.offer(event));
+                Set<Subscription> filtered = byPostedBy.get(event.posted_by);
+                if (filtered != null) {
+                    filtered.forEach(subscription -> subscription.offer(event));
+                }
+                dispatched = seq;
+            }
+
+            long now = System.nanoTime();
+            if (now - lastCheck >= checkNanos) {
+                lastCheck = now;
+                forEachSubscription(subscription -> subscription.checkStalled(now));
+            }
+            if (now - lastHeartbeat >= heartbeatNanos) {
+                lastHeartbeat = now;
+                forEachSubscription(Subscription::heartbeat);
+            }
+        }
+    }
+
+
+    private void forEachSubscription(Consumer<Subscription> action) {
+        unfiltered.forEach(action);
+        byPostedBy.values().forEach(subscriptions -> subscriptions.forEach(action));
+    }
+
+
+    /**
+     * @return subscriber and delivery figures for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("subscribers", subscriberCount.get());
+        out.put("published", publishedCount.sum());
+        out.put("delivered", delivered.sum());
+        out.put("dropped", dropped.sum());
+        out.put("disconnected", disconnected.sum());
+        out.put("timed_out", timedOut.sum());
+        out.put("overruns", overruns.sum());
+        out.put("slow_consumer_policy", policy.name().toLowerCase());
+        return out;
+    }
+
+
+    private static ExecutorService newSendExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                VirtualThreads.threadFactory("message-stream-send"));
+    }
+
+
+    /**
+     * One change in the ring. seq is its place in the ring and change_seq its place in 
+     * message_change. Fields are final so that the dispatcher sees a whole event even if it reads 
+     * a slot as it is being overwritten.
+     */
+    private static final class Event {
+        final long seq;
+        final long change_seq;
+        final String type;
+        final int posted_by;
+        final String json;
+
+        Event(long seq, long change_seq, String type, int posted_by, String json) {
+            this.seq = seq;
+            this.change_seq = change_seq;
+            this.type = type;
+            this.posted_by = posted_by;
+            this.json = json;
+        }
+    }
+
+
+    /**
+     * One subscriber: its filter, its sink and the events waiting to be sent to it.
+     */
+    public final class Subscription {
+        private final Integer posted_by;
+        private final Sink sink;
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * Events waiting to be sent, or null while there are none.
+         */
+        private ArrayDeque<Event> pending;
+        private long missed;
+        private boolean heartbeatDue;
+        private boolean scheduled;
+        private boolean closed;
+        /**
+         * When the send in progress started, read by the dispatcher; meaningful only while sending is set.
+         */
+        private volatile long sendStarted;
+        private volatile boolean sending;
+
+        private Subscription(Integer posted_by, Sink sink) {
+            this.posted_by = posted_by;
+            this.sink = sink;
+        }
+
+
+        private void offer(Event event) {
+            boolean overflow = false;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (pending == null) {
+                    pending = new ArrayDeque<>(Math.min(bufferSize, 8));
+                }
+                if (pending.size() < bufferSize) {
+                    pending.add(event);
+                } else {
+                    overflow = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (overflow) {
+                missed(1);
+            } else {
+                schedule();
+            }
+        }
+
+
+        private void missed(long count) {
+            if (policy == SlowConsumerPolicy.DISCONNECT) {
+                // a sender may be blocked on this subscriber's full socket, so do not wait for it
+                disconnected.increment();
+                shut(true);
+                return;
+            }
+
+            dropped.add(count);
+            lock.lock();
+            try {
+                missed += count;
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+
+        private void heartbeat() {
+            lock.lock();
+            try {
+                heartbeatDue = true;
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+
+        private void schedule() {
+            lock.lock();
+            try {
+                if (closed || scheduled) {
+                    return;
+                }
+                scheduled = true;
+            } finally {
+                lock.unlock();
+            }
+            SEND_EXECUTOR.execute(this::drain);
+        }
+
+
+        /**
+         * Send everything waiting, on a sender thread. Only one drain runs at a time per subscriber.
+         */
+        private void drain() {
+            while (true) {
+                Event event;
+                long missedNow;
+                boolean heartbeatNow;
+                lock.lock();
+                try {
+                    event = closed || pending == null ? null : pending.poll();
+                    missedNow = missed;
+                    heartbeatNow = heartbeatDue && event == null && missedNow == 0;
+                    missed = 0;
+                    heartbeatDue = false;
+                    if (closed || (event == null && missedNow == 0 && !heartbeatNow)) {
+                        // idle again: give the buffer back
+                        pending = null;
+                        scheduled = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                sendStarted = System.nanoTime();
+                sending = true;
+                try {
+                    if (missedNow > 0) {
+                        sink.send(DROPPED, String.valueOf(missedNow), null);
+                    }
+                    if (event != null) {
+                        sink.send(event.type, event.json, String.valueOf(event.change_seq));
+                        delivered.increment();
+                    }
+                    if (heartbeatNow) {
+                        sink.sendComment("heartbeat");
+                    }
+                } catch (RuntimeException e) {
+                    System.out.println(e.getMessage());
+                    close();
+                } finally {
+                    sending = false;
+                }
+            }
+        }
+
+
+        /**
+         * Abort the subscriber if a send has been blocked on it for longer than the write timeout.
+         * Called by the dispatcher.
+         *
+         * @param now the current System.nanoTime().
+         */
+        private void checkStalled(long now) {
+            if (sending && now - sendStarted > writeTimeoutNanos) {
+                timedOut.increment();
+                shut(true);
+            }
+        }
+
+
+        /**
+         * Stop sending to this subscriber and close its sink. Safe to call more than once, including
+         * from the sink's own close callback.
+         */
+        public void close() {
+            shut(false);
+        }
+
+
+        /**
+         * @param abort true to abort the sink's connection rather than close it, for when a send 
+         *            may be blocked on it.
+         */
+        private void shut(boolean abort) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending = null;
+            } finally {
+                lock.unlock();
+            }
+            unsubscribe(this);
+            if (abort) {
+                sink.abort();
+            } else {
+                sink.close();
+            }
+        }
+    }
+}
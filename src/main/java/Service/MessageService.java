@@ -1,15 +1,113 @@
 package Service;
 
+import Model.BatchItemResult;
 import Model.Message;
+import Model.MessageChange;
+import Model.MessageChangePage;
+import Model.MessageLookup;
+import Model.MessagePage;
+import DAO.AccountDAO;
 import DAO.MessageDAO;
+import Util.BoundedCache;
+import Util.DataAccessException;
+import Util.EncodedMessageCache;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 
 public class MessageService {
+    /**
+     * Longest message_text accepted, matching the message_text column.
+     */
+    public static final int MAX_TEXT_LENGTH = 255;
+    /**
+     * Page size used when the client does not ask for one.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * Largest page the server will return, whatever the client asks for.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+    /**
+     * Largest number of messages accepted in one batch insert.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+    /**
+     * Largest number of ids accepted in one multi-get.
+     */
+    public static final int MAX_LOOKUP_SIZE = 1000;
+    /**
+     * Largest number of accounts merged into one timeline.
+     */
+    public static final int MAX_TIMELINE_ACCOUNTS = 200;
+
+    /**
+     * Number of per-account generation counters. Accounts share counters by account_id modulo 
+     * this, so a change to one account can only make another account's ETag change spuriously, 
+     * never stay the same when it should not.
+     */
+    private static final int ACCOUNT_GENERATIONS = 4096;
+    /**
+     * The change log is pruned back to its retention once every this many changes.
+     */
+    private static final int CHANGE_PRUNE_INTERVAL = 1024;
+
+    private static final String UNKNOWN_POSTER = "posted_by does not refer to an existing account";
+
     MessageDAO messageDAO;
+    AccountDAO accountDAO;
+    /**
+     * Group-commit queue for message inserts, or null when write-behind is disabled.
+     */
+    MessageWriteQueue writeQueue;
+    /**
+     * Read-through cache of messages by message_id. Missing ids are cached too, briefly.
+     */
+    BoundedCache<Integer, Message> messageCache;
+    /**
+     * The JSON encoding of messages written by streamed list responses.
+     */
+    EncodedMessageCache jsonCache;
+    TimelineMerger timelineMerger;
+    /**
+     * Bumped after every committed insert, update and delete of a message.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * Like generation, but only for changes to messages posted by the accounts of each counter.
+     */
+    private final AtomicLongArray accountGenerations = new AtomicLongArray(ACCOUNT_GENERATIONS);
+    /**
+     * How many of the most recent changes the change log keeps.
+     */
+    long changeRetention;
+    /**
+     * Live feed of message changes for GET /messages/stream.
+     */
+    MessageEventBus eventBus;
 
+    /**
+     * Setting the messages.writeBehind system property to true makes insertMessageAsync go through 
+     * a group-commit MessageWriteQueue, tuned by messages.writeBehind.capacity, .maxBatchSize and 
+     * .lingerMillis.
+     */
     public MessageService() {
-        messageDAO = new MessageDAO();
+        this(new MessageDAO());
+        accountDAO.preloadAccountIds();
+        if (Boolean.getBoolean("messages.writeBehind")) {
+            writeQueue = new MessageWriteQueue(messageDAO,
+                    Integer.getInteger("messages.writeBehind.capacity", 10_000),
+                    Integer.getInteger("messages.writeBehind.maxBatchSize", 256),
+                    Long.getLong("messages.writeBehind.lingerMillis", 2));
+        }
     }
 
 
@@ -21,6 +119,24 @@ public class MessageService {
      */
     public MessageService(MessageDAO messageDAO) {
         this.messageDAO = messageDAO;
+        this.accountDAO = new AccountDAO();
+        this.messageCache = new BoundedCache<>(
+                Integer.getInteger("messages.cache.maximumSize", 10_000),
+                Long.getLong("messages.cache.ttlMillis", 60_000),
+                Long.getLong("messages.cache.negativeTtlMillis", 5_000));
+        this.jsonCache = new EncodedMessageCache(
+                Long.getLong("messages.jsonCache.maximumBytes", 32L * 1024 * 1024),
+                Boolean.getBoolean("messages.jsonCache.offHeap"));
+        this.timelineMerger = new TimelineMerger(messageDAO);
+        this.changeRetention = Long.getLong("messages.changes.retention", 100_000);
+        this.eventBus = new MessageEventBus(
+                Integer.getInteger("messages.stream.ringSize", 4096),
+                Integer.getInteger("messages.stream.bufferSize", 256),
+                MessageEventBus.SlowConsumerPolicy.valueOf(
+                        System.getProperty("messages.stream.slowConsumerPolicy", "disconnect").toUpperCase()),
+                Long.getLong("messages.stream.heartbeatMillis", 15_000),
+                Long.getLong("messages.stream.writeTimeoutMillis", 10_000));
+        messageDAO.setChangeListener(this::published);
     }
     
     /**
@@ -34,15 +150,116 @@ public class MessageService {
      * @return the newly added message if the add operation was successful, including the message_id. 
      */
     public Message insertMessage(Message message) {
-        if (message != null && message.message_text.length() > 0 && message.message_text.length() <= 255) {
-            // posted_by will be checked when querying bc message table has 
-            // foreign key account_id from account table
-            return messageDAO.insertMessage(message);
+        if (isValidText(message) && accountDAO.isKnownAccountId(message.posted_by)) {
+            // known posters are checked in memory and unknown ones against the account table; 
+            // the foreign key from message.posted_by to account catches accounts deleted since
+            return inserted(messageDAO.insertMessage(message));
         }
 
         return null;
     }
 
+
+
+    /**
+     * Add a new message to the database, through the write-behind queue when it is enabled.
+     * 
+     * The message is validated the same way as insertMessage. With write-behind disabled, it is 
+     * inserted synchronously and the returned future is already complete.
+     *
+     * @param message an object representing a new message.
+     * @return a future completing with the newly added message once it is durable, or with null if 
+     *         the add operation was unsuccessful. The future fails with a RejectedExecutionException 
+     *         when the write-behind queue is full, and with an IllegalStateException when the group 
+     *         it was committed with could not be stored.
+     */
+    public CompletableFuture<Message> insertMessageAsync(Message message) {
+        if (writeQueue == null || !isValidText(message) || !accountDAO.isKnownAccountId(message.posted_by)) {
+            return CompletableFuture.completedFuture(insertMessage(message));
+        }
+
+        return writeQueue.submit(message).thenApply(this::inserted);
+    }
+
+
+    /**
+     * @return true if inserts can be queued through insertMessageAsync.
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeQueue != null;
+    }
+
+
+    /**
+     * Stop the write-behind writer, once it has committed every message already queued.
+     */
+    public void close() {
+        if (writeQueue != null) {
+            writeQueue.close();
+        }
+    }
+
+
+    /**
+     * @return live gauges for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("message_cache", messageCache.metrics());
+        out.put("json_cache", jsonCache.metrics());
+        out.put("stream", eventBus.metrics());
+        if (writeQueue != null) {
+            out.put("write_behind", writeQueue.metrics());
+        }
+        return out;
+    }
+
+
+    /**
+     * Add several new messages to the database in one transaction.
+     * 
+     * Each message is held to the same rules as insertMessage. Invalid messages 
+     * are reported and skipped; the valid ones are inserted together.
+     *
+     * @param messages objects representing new messages.
+     * @return one result per message, in request order, holding either the stored message 
+     *         (including its message_id) or the reason it was rejected.
+     */
+    public List<BatchItemResult> insertMessages(List<Message> messages) {
+        List<BatchItemResult> results = new ArrayList<>(messages.size());
+        List<Message> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            if (!isValidText(message)) {
+                results.add(BatchItemResult.rejected(i, "message_text must be between 1 and 255 characters"));
+            } else if (!accountDAO.isKnownAccountId(message.posted_by)) {
+                results.add(BatchItemResult.rejected(i, UNKNOWN_POSTER));
+            } else {
+                valid.add(message);
+                validIndexes.add(i);
+                results.add(null);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            List<Message> stored = messageDAO.insertMessages(valid);
+            for (int j = 0; j < valid.size(); j++) {
+                int i = validIndexes.get(j);
+                if (stored == null) {
+                    results.set(i, BatchItemResult.rejected(i, "batch could not be stored"));
+                } else if (stored.get(j) == null) {
+                    results.set(i, BatchItemResult.rejected(i, UNKNOWN_POSTER));
+                } else {
+                    results.set(i, BatchItemResult.created(i, inserted(stored.get(j))));
+                }
+            }
+        }
+
+        return results;
+    }
+
     
     /**
      * Update an existing message from the database.
@@ -58,8 +275,12 @@ public class MessageService {
      *         unsuccessful.
      */
     public Message updateMessage(int message_id, Message message) {
-        if (message != null && message.message_text.length() > 0 && message.message_text.length() <= 255) {
-            return messageDAO.updateMessage(message_id, message);
+        if (isValidText(message)) {
+            Message updated = messageDAO.updateMessage(message_id, message);
+            messageCache.invalidate(message_id);
+            jsonCache.invalidate(message_id);
+            changed(updated);
+            return updated;
         }
         
         return null;
@@ -73,7 +294,11 @@ public class MessageService {
      * @return the removed message object, if message_id exist
      */
     public Message deleteMessage(int message_id) {
-        return messageDAO.deleteMessage(message_id);
+        Message deleted = messageDAO.deleteMessage(message_id);
+        messageCache.invalidate(message_id);
+        jsonCache.invalidate(message_id);
+        changed(deleted);
+        return deleted;
     }
 
 
@@ -87,14 +312,326 @@ public class MessageService {
     }
 
 
+    /**
+     * The generation of the message table, for ETags on message lists.
+     * 
+     * It only grows, and it grows after every change is committed. So a 
+     * caller that reads it before reading messages knows that the messages 
+     * it read have not changed for as long as the generation stays the same.
+     * 
+     * @return the current generation of all messages.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+
+    /**
+     * The generation of one account's messages, like getGeneration but only 
+     * bumped by changes that could affect that account's messages (and, 
+     * occasionally, a few other accounts').
+     * 
+     * @param account_id a account ID.
+     * @return the current generation of the account's messages.
+     */
+    public long getAccountGeneration(int account_id) {
+        return accountGenerations.get(Math.floorMod(account_id, ACCOUNT_GENERATIONS));
+    }
+
+
+    /**
+     * Retrieve the changes to messages made after a sequence number, oldest first.
+     * 
+     * Without since_seq, the page is empty and its next_seq is the newest 
+     * sequence number, for a client that is about to fetch every message and 
+     * then wants only the changes made from then on.
+     * 
+     * The log only keeps the most recent changes. If some changes after 
+     * since_seq are no longer in it, or since_seq is newer than any change 
+     * (as after the database was reset), the client cannot catch up from its 
+     * cursor and null is returned.
+     *
+     * @param since_seq the next_seq of the previous page, or null to start from now.
+     * @param limit the page size, clamped to between 1 and MAX_PAGE_SIZE.
+     * @return a page of changes, or null if the client must fetch every message again.
+     * @throws DataAccessException if the change log could not be read.
+     */
+    public MessageChangePage getChanges(Long since_seq, int limit) {
+        if (since_seq == null) {
+            long[] range = messageDAO.getChangeSeqRange();
+            return new MessageChangePage(List.of(), range[1], false);
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<MessageChange> changes = messageDAO.getChangesAfter(since_seq, pageSize + 1);
+
+        // read after the page, so that a prune that raced with it is noticed
+        long[] range = messageDAO.getChangeSeqRange();
+        if (since_seq + 1 < range[0] || since_seq > range[1]) {
+            return null;
+        }
+
+        boolean has_more = changes.size() > pageSize;
+        if (has_more) {
+            changes = changes.subList(0, pageSize);
+        }
+        long next_seq = changes.isEmpty() ? since_seq : changes.get(changes.size() - 1).getSeq();
+        return new MessageChangePage(changes, next_seq, has_more);
+    }
+
+
+    /**
+     * Subscribe to messages as they are created, updated and deleted.
+     * 
+     * @param posted_by only messages posted by this account, or null for all messages.
+     * @param sink receives one event per change, named created, updated or deleted, with the 
+     *         message as JSON and the change's seq as its id; see MessageEventBus for slow consumers.
+     * @return the subscription, to be closed when the subscriber goes away.
+     */
+    public MessageEventBus.Subscription subscribe(Integer posted_by, MessageEventBus.Sink sink) {
+        return eventBus.subscribe(posted_by, sink);
+    }
+
+
+    /**
+     * Start writing a list of messages through the JSON cache.
+     * 
+     * Open the session before reading the messages, so that encodings of 
+     * messages updated in the meantime are not cached.
+     * 
+     * @return a session that writes each message from its cached encoding where possible.
+     */
+    public EncodedMessageCache.Session openJsonSession() {
+        return jsonCache.session();
+    }
+
+
+    /**
+     * Stream all messages to the sink one at a time, without holding them all in memory.
+     * 
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the messages could not be read; some may already have been streamed.
+     */
+    public int streamAllMessages(Consumer<Message> sink) {
+        return messageDAO.streamAllMessages(sink);
+    }
+
+
+    /**
+     * Retrieve one page of messages ordered by message ID.
+     * 
+     * The page size is clamped to MAX_PAGE_SIZE. One extra row is fetched to tell whether another 
+     * page follows; if it does, the page's next_cursor is the last message ID on the page, to be 
+     * sent back as after_id.
+     *
+     * @param after_id only messages with a larger message ID are returned; 0 starts from the beginning.
+     * @param limit the requested page size.
+     * @return the page of messages.
+     */
+    public MessagePage getMessagesPage(int after_id, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Message> messages = messageDAO.getMessagesAfterId(after_id, pageSize + 1);
+
+        String next_cursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            next_cursor = String.valueOf(messages.get(pageSize - 1).getMessage_id());
+        }
+
+        return new MessagePage(messages, next_cursor);
+    }
+
+
+    /**
+     * Retrieve one page of an account's messages, newest first.
+     * 
+     * The cursor has the form "time_posted_epoch:message_id" and names the last 
+     * message of the previous page; the page starts just after it. A bare 
+     * time_posted_epoch is also accepted and starts with messages posted 
+     * strictly before that time.
+     *
+     * @param account_id a account ID.
+     * @param before a cursor from a previous page, or null to start from the newest message.
+     * @param limit the page size, clamped to between 1 and MAX_PAGE_SIZE.
+     * @return a page of messages, with a next_cursor unless it is the last page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public MessagePage getMessagesFromAccountIdPage(int account_id, String before, int limit) {
+        Long before_time = null;
+        int before_id = Integer.MIN_VALUE;
+        if (before != null) {
+            long[] cursor = parseCursor(before, Integer.MIN_VALUE);
+            before_time = cursor[0];
+            before_id = (int) cursor[1];
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Message> messages = messageDAO.getMessagesFromAccountIdBefore(account_id, before_time, before_id,
+                pageSize + 1);
+
+        String next_cursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            Message last = messages.get(pageSize - 1);
+            next_cursor = last.getTime_posted_epoch() + ":" + last.getMessage_id();
+        }
+
+        return new MessagePage(messages, next_cursor);
+    }
+
+
+    /**
+     * Retrieve one page of the merged timeline of several accounts, newest first.
+     * 
+     * The cursor works like the one for getMessagesFromAccountIdPage; since 
+     * (time_posted_epoch, message_id) orders messages across all accounts, one 
+     * cursor serves every account in the timeline.
+     *
+     * @param account_ids the accounts to include; repeated ids are merged once.
+     * @param before a cursor from a previous page, or null to start from the newest message.
+     * @param limit the page size, clamped to between 1 and MAX_PAGE_SIZE.
+     * @return a page of messages, with a next_cursor unless it is the last page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     * @throws DataAccessException if any account's messages could not be read.
+     */
+    public MessagePage getTimeline(List<Integer> account_ids, String before, int limit) {
+        Long before_time = null;
+        int before_id = Integer.MIN_VALUE;
+        if (before != null) {
+            long[] cursor = parseCursor(before, Integer.MIN_VALUE);
+            before_time = cursor[0];
+            before_id = (int) cursor[1];
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return timelineMerger.merge(new ArrayList<>(new LinkedHashSet<>(account_ids)), before_time, before_id, pageSize);
+    }
+
+
+    /**
+     * Stream every message posted in [since, until) to the sink, oldest first.
+     * 
+     * @param since the earliest time_posted_epoch to include.
+     * @param until the first time_posted_epoch to exclude.
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the messages could not be read; some may already have been streamed.
+     */
+    public int streamMessagesInTimeRange(long since, long until, Consumer<Message> sink) {
+        return messageDAO.streamMessagesInTimeRange(since, until, sink);
+    }
+
+
+    /**
+     * Retrieve one page of the messages posted in [since, until), oldest first.
+     * 
+     * The cursor has the form "time_posted_epoch:message_id" and names the last 
+     * message of the previous page.
+     *
+     * @param since the earliest time_posted_epoch to include.
+     * @param until the first time_posted_epoch to exclude.
+     * @param after a cursor from a previous page, or null for the first page.
+     * @param limit the page size, clamped to between 1 and MAX_PAGE_SIZE.
+     * @return a page of messages, with a next_cursor unless it is the last page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public MessagePage getMessagesInTimeRangePage(long since, long until, String after, int limit) {
+        int after_id = Integer.MIN_VALUE;
+        if (after != null) {
+            long[] cursor = parseCursor(after, Integer.MAX_VALUE);
+            if (cursor[0] >= since) {
+                since = cursor[0];
+                after_id = (int) cursor[1];
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Message> messages = messageDAO.getMessagesInTimeRange(since, until, after_id, pageSize + 1);
+
+        String next_cursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            Message last = messages.get(pageSize - 1);
+            next_cursor = last.getTime_posted_epoch() + ":" + last.getMessage_id();
+        }
+
+        return new MessagePage(messages, next_cursor);
+    }
+
+
+    /**
+     * @param cursor "time_posted_epoch:message_id", or a bare time_posted_epoch.
+     * @param default_id the message ID to use for a bare time_posted_epoch.
+     * @return the time and message ID.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    private static long[] parseCursor(String cursor, int default_id) {
+        try {
+            int colon = cursor.indexOf(':');
+            if (colon < 0) {
+                return new long[] { Long.parseLong(cursor), default_id };
+            }
+            return new long[] { Long.parseLong(cursor.substring(0, colon)),
+                    Integer.parseInt(cursor.substring(colon + 1)) };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed cursor: " + cursor, e);
+        }
+    }
+
+
     /**
      * Retrieve a specific message using its message ID.
+     * 
+     * Served from the message cache when possible. Ids that do not exist are 
+     * cached as missing for a short while, so scans over nonexistent ids do 
+     * not reach the database either.
      *
      * @param message_id a message ID.
      * @return the message object, null if message_id does not exist
+     * @throws DataAccessException if the message could not be read; nothing is cached then.
      */
     public Message getMessageById(int message_id) {
-        return messageDAO.getMessageById(message_id);
+        return messageCache.get(message_id, messageDAO::getMessageById);
+    }
+
+
+    /**
+     * Retrieve many messages by message ID.
+     * 
+     * Ids found in the message cache are served from it, and all the others 
+     * are fetched with one query per chunk of ids. Ids that turn out not to 
+     * exist are cached as missing, like in getMessageById.
+     *
+     * @param message_ids the message IDs, in the order the caller wants them; repeated ids are returned once.
+     * @return the messages found, in request order, and the ids that do not exist, in request order.
+     * @throws DataAccessException if the misses could not be read; none of them is cached then.
+     */
+    public MessageLookup getMessagesByIds(List<Integer> message_ids) {
+        LinkedHashSet<Integer> requested = new LinkedHashSet<>(message_ids);
+        Map<Integer, Message> found = messageCache.getAll(requested, this::loadMessages);
+
+        List<Message> messages = new ArrayList<>(found.size());
+        List<Integer> missing_ids = new ArrayList<>();
+        for (Integer message_id : requested) {
+            Message message = found.get(message_id);
+            if (message != null) {
+                messages.add(message);
+            } else {
+                missing_ids.add(message_id);
+            }
+        }
+
+        return new MessageLookup(messages, missing_ids);
+    }
+
+
+    private Map<Integer, Message> loadMessages(List<Integer> message_ids) {
+        Map<Integer, Message> loaded = new HashMap<>();
+        for (Message message : messageDAO.getMessagesByIds(message_ids)) {
+            loaded.put(message.getMessage_id(), message);
+        }
+        return loaded;
     }
 
 
@@ -107,4 +644,86 @@ public class MessageService {
     public List<Message> getMessagesFromAccountId(int account_id) {
         return messageDAO.getMessagesFromAccountId(account_id);
     }
+
+
+    /**
+     * Stream all messages from a particular user (account_id) to the sink one at a time.
+     * 
+     * @param account_id a account ID.
+     * @param sink receives each message in turn.
+     * @return the number of messages streamed.
+     * @throws DataAccessException if the messages could not be read; some may already have been streamed.
+     */
+    public int streamMessagesFromAccountId(int account_id, Consumer<Message> sink) {
+        return messageDAO.streamMessagesFromAccountId(account_id, sink);
+    }
+
+
+    /**
+     * @param message a message from a request body.
+     * @return true if the message_text is not blank and not over 255 characters.
+     */
+    private static boolean isValidText(Message message) {
+        return message != null && message.message_text != null
+                && message.message_text.length() > 0 && message.message_text.length() <= MAX_TEXT_LENGTH;
+    }
+
+
+    /**
+     * Put a newly inserted message into the message cache, replacing any cached "missing" entry 
+     * for its id and bump the generations.
+     * 
+     * @param message the stored message, or null if nothing was stored.
+     * @return the same message.
+     */
+    private Message inserted(Message message) {
+        if (message != null) {
+            messageCache.put(message.getMessage_id(), message);
+            changed(message);
+        }
+        return message;
+    }
+
+
+    /**
+     * Bump the global generation and that of the message's account, once the change is committed, 
+     * and now and then prune the change log.
+     * 
+     * @param message the inserted, updated or deleted message, or null if nothing changed.
+     */
+    private void changed(Message message) {
+        if (message != null) {
+            accountGenerations.incrementAndGet(Math.floorMod(message.getPosted_by(), ACCOUNT_GENERATIONS));
+            if (generation.incrementAndGet() % CHANGE_PRUNE_INTERVAL == 0) {
+                messageDAO.pruneChanges(changeRetention);
+            }
+        }
+    }
+
+
+    /**
+     * Tell live subscribers of a change the DAO has just committed. Runs under the DAO's change 
+     * log lock, so events go out in seq order, each with its seq as the event id. An updated or 
+     * deleted message is dropped from the caches first, so a subscriber that reads it on hearing 
+     * of the change does not get the old copy.
+     * 
+     * @param change the committed change.
+     */
+    private void published(MessageChange change) {
+        switch (change.getOp()) {
+            case MessageChange.INSERT:
+                eventBus.publish(MessageEventBus.CREATED, change.getMessage(), change.getSeq());
+                break;
+            case MessageChange.UPDATE:
+                messageCache.invalidate(change.getMessage_id());
+                jsonCache.invalidate(change.getMessage_id());
+                eventBus.publish(MessageEventBus.UPDATED, change.getMessage(), change.getSeq());
+                break;
+            default:
+                messageCache.invalidate(change.getMessage_id());
+                jsonCache.invalidate(change.getMessage_id());
+                eventBus.publish(MessageEventBus.DELETED, change.getMessage(), change.getSeq());
+                break;
+        }
+    }
 }
@@ -0,0 +1,197 @@
+package Service;
+
+import Model.Message;
+import DAO.MessageDAO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A write-behind queue that group-commits message inserts.
+ *
+ * Any number of request threads submit messages into a bounded queue, and a single writer thread
+ * drains it: it takes whatever is waiting, lingers briefly for more, and then inserts up to
+ * maxBatchSize messages in one transaction. Each submitter gets a future that completes once its
+ * row has been committed, so the cost of the commit is shared by everyone in the group. When the
+ * queue is full, submit() fails immediately instead of blocking, which pushes back on callers.
+ *
+ * close() stops the writer once it has committed everything submitted before it.
+ */
+public class MessageWriteQueue implements AutoCloseable {
+
+    /**
+     * Queued by close() behind every pending write, to tell the writer to stop.
+     */
+    private static final PendingWrite CLOSE = new PendingWrite(null);
+
+    private final MessageDAO messageDAO;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param messageDAO the DAO used to insert each group.
+     * @param capacity the maximum number of messages waiting to be written.
+     * @param maxBatchSize the maximum number of messages committed together.
+     * @param lingerMillis how long the writer waits for more messages before committing a partial group.
+     */
+    public MessageWriteQueue(MessageDAO messageDAO, int capacity, int maxBatchSize, long lingerMillis) {
+        this.messageDAO = messageDAO;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+
+        this.writer = new Thread(this::writeLoop, "message-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Queue a validated message for insertion.
+     *
+     * @param message a message without a message ID.
+     * @return a future completing with the stored message once it is committed, or with null if its
+     *         posted_by does not exist. It fails with a RejectedExecutionException if the queue is
+     *         full or closed, and with an IllegalStateException if its group could not be stored.
+     */
+    public CompletableFuture<Message> submit(Message message) {
+        PendingWrite pending = new PendingWrite(message);
+        if (closed) {
+            rejected.increment();
+            pending.future.completeExceptionally(new RejectedExecutionException("message write queue is closed"));
+        } else if (!queue.offer(pending)) {
+            rejected.increment();
+            pending.future.completeExceptionally(new RejectedExecutionException("message write queue is full"));
+        }
+        return pending.future;
+    }
+
+
+    /**
+     * Stop accepting messages, and wait for the writer to commit what is already queued and exit.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(CLOSE);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>(maxBatchSize);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, maxBatchSize - group.size());
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (group.size() < maxBatchSize) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    if (next == CLOSE) {
+                        break;
+                    }
+                    queue.drainTo(group, maxBatchSize - group.size());
+                }
+
+                closing = group.remove(CLOSE);
+                if (!group.isEmpty()) {
+                    commit(group);
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            } catch (RuntimeException e) {
+                for (PendingWrite pending : group) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+
+        // submitted while close() was queueing its marker
+        PendingWrite pending;
+        while ((pending = queue.poll()) != null) {
+            if (pending != CLOSE) {
+                pending.future.completeExceptionally(new RejectedExecutionException("message write queue is closed"));
+            }
+        }
+    }
+
+
+    private void commit(List<PendingWrite> group) {
+        List<Message> messages = new ArrayList<>(group.size());
+        for (PendingWrite pending : group) {
+            messages.add(pending.message);
+        }
+
+        List<Message> stored = messageDAO.insertMessages(messages);
+        if (stored == null) {
+            IllegalStateException failure = new IllegalStateException(
+                    "group of " + group.size() + " messages could not be stored");
+            for (PendingWrite pending : group) {
+                pending.future.completeExceptionally(failure);
+            }
+            return;
+        }
+        batches.increment();
+        written.add(group.size());
+
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future.complete(stored.get(i));
+        }
+    }
+
+
+    /**
+     * @return live gauges for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long groups = batches.sum();
+        out.put("depth", queue.size());
+        out.put("capacity", queue.size() + queue.remainingCapacity());
+        out.put("groups", groups);
+        out.put("messages", written.sum());
+        out.put("rejected", rejected.sum());
+        out.put("mean_group_size", groups == 0 ? 0.0 : (double) written.sum() / groups);
+        return out;
+    }
+
+
+    private static final class PendingWrite {
+        final Message message;
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        PendingWrite(Message message) {
+            this.message = message;
+        }
+    }
+}
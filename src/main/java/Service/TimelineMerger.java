@@ -0,0 +1,169 @@
+package Service;
+
+import Model.Message;
+import Model.MessagePage;
+import DAO.MessageDAO;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+import Util.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a newest-first timeline across several accounts.
+ *
+ * Each account's timeline is already newest-first in the account timeline index, so the merged
+ * timeline is a k-way merge of those sorted streams: a heap holds the head of every account's
+ * stream, and the newest head is taken until the page is full. Each stream is read lazily in
+ * chunks with the same keyset query as GET /accounts/{account_id}/messages, so one page costs about
+ * page size plus one chunk per account in rows, whatever the accounts' total history.
+ *
+ * The first chunk of every account is fetched in parallel on a small shared executor; the rare
+ * follow-up chunks are fetched on the calling thread as the merge needs them.
+ */
+public class TimelineMerger {
+
+    /**
+     * Smallest chunk read from one account, so that accounts are not refetched a handful of rows at a time.
+     */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    /**
+     * Newest first: later time_posted_epoch, then larger message_id.
+     */
+    private static final Comparator<Message> NEWEST_FIRST = Comparator.comparingLong(Message::getTime_posted_epoch)
+            .thenComparingInt(Message::getMessage_id)
+            .reversed();
+
+    /**
+     * Shared by every instance. When all threads are busy and the queue is full, the request thread
+     * runs its own fetches, so a burst of timelines degrades to sequential reads instead of failing.
+     */
+    private static final ExecutorService FETCH_EXECUTOR = newFetchExecutor(
+            Integer.getInteger("timeline.fetchThreads", ConnectionUtil.defaultFetchThreads()),
+            Integer.getInteger("timeline.fetchQueueCapacity", 256));
+
+    private final MessageDAO messageDAO;
+
+    /**
+     * @param messageDAO the DAO used to read each account's timeline.
+     */
+    public TimelineMerger(MessageDAO messageDAO) {
+        this.messageDAO = messageDAO;
+    }
+
+
+    /**
+     * @param account_ids the accounts to merge, without duplicates.
+     * @param before_time only messages at or before this time; null starts from the newest.
+     * @param before_id among messages at exactly before_time, only those with a smaller message ID.
+     * @param limit the page size.
+     * @return up to limit messages, newest first, with a next_cursor unless it is the last page.
+     * @throws DataAccessException if any account's messages could not be read.
+     */
+    public MessagePage merge(List<Integer> account_ids, Long before_time, int before_id, int limit) {
+        int chunkSize = Math.min(limit + 1, Math.max(MIN_CHUNK_SIZE, 2 * (limit + 1) / account_ids.size()));
+
+        List<CompletableFuture<AccountStream>> fetches = new ArrayList<>(account_ids.size());
+        for (int account_id : account_ids) {
+            AccountStream stream = new AccountStream(account_id, before_time, before_id, chunkSize);
+            fetches.add(CompletableFuture.supplyAsync(() -> {
+                stream.fetch(messageDAO);
+                return stream;
+            }, FETCH_EXECUTOR));
+        }
+
+        PriorityQueue<AccountStream> heads = new PriorityQueue<>(account_ids.size(),
+                Comparator.comparing(AccountStream::head, NEWEST_FIRST));
+        for (CompletableFuture<AccountStream> fetch : fetches) {
+            AccountStream stream;
+            try {
+                stream = fetch.join();
+            } catch (CompletionException e) {
+                // fail the whole page rather than quietly leave the account out of it
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            if (stream.head() != null) {
+                heads.add(stream);
+            }
+        }
+
+        List<Message> messages = new ArrayList<>(limit);
+        while (messages.size() < limit && !heads.isEmpty()) {
+            AccountStream newest = heads.poll();
+            messages.add(newest.next(messageDAO));
+            if (newest.head() != null) {
+                heads.add(newest);
+            }
+        }
+
+        String next_cursor = null;
+        if (!heads.isEmpty() && !messages.isEmpty()) {
+            Message last = messages.get(messages.size() - 1);
+            next_cursor = last.getTime_posted_epoch() + ":" + last.getMessage_id();
+        }
+
+        return new MessagePage(messages, next_cursor);
+    }
+
+
+    private static ExecutorService newFetchExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                VirtualThreads.threadFactory("timeline-fetch"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+
+    /**
+     * One account's timeline, read a chunk at a time from a keyset cursor.
+     */
+    private static final class AccountStream {
+        final int account_id;
+        final int chunkSize;
+        Long before_time;
+        int before_id;
+        List<Message> chunk = List.of();
+        int position;
+        boolean exhausted;
+
+        AccountStream(int account_id, Long before_time, int before_id, int chunkSize) {
+            this.account_id = account_id;
+            this.before_time = before_time;
+            this.before_id = before_id;
+            this.chunkSize = chunkSize;
+        }
+
+        void fetch(MessageDAO messageDAO) {
+            chunk = messageDAO.getMessagesFromAccountIdBefore(account_id, before_time, before_id, chunkSize);
+            position = 0;
+            exhausted = chunk.size() < chunkSize;
+            if (!chunk.isEmpty()) {
+                Message last = chunk.get(chunk.size() - 1);
+                before_time = last.getTime_posted_epoch();
+                before_id = last.getMessage_id();
+            }
+        }
+
+        Message head() {
+            return position < chunk.size() ? chunk.get(position) : null;
+        }
+
+        Message next(MessageDAO messageDAO) {
+            Message message = chunk.get(position++);
+            if (position == chunk.size() && !exhausted) {
+                fetch(messageDAO);
+            }
+            return message;
+        }
+    }
+}
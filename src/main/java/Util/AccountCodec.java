@@ -0,0 +1,71 @@
+package Util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import Model.Account;
+
+/**
+ * Hand-written streaming JSON codec for Account, following the same rules as MessageCodec.
+ */
+final class AccountCodec {
+
+    private static final SerializedString ACCOUNT_ID = new SerializedString("account_id");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString PASSWORD = new SerializedString("password");
+
+    private AccountCodec() {
+    }
+
+
+    /**
+     * @param parser a parser positioned on the START_OBJECT of an account.
+     * @return the account; the parser is left on its END_OBJECT.
+     * @throws IOException if the JSON is malformed or does not describe an account.
+     */
+    static Account read(JsonParser parser) throws IOException {
+        JsonTokens.expectStartObject(parser);
+
+        Account account = new Account();
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "account_id":
+                    account.account_id = JsonTokens.intValue(parser, token);
+                    break;
+                case "username":
+                    account.username = JsonTokens.textValue(parser, token);
+                    break;
+                case "password":
+                    account.password = JsonTokens.textValue(parser, token);
+                    break;
+                default:
+                    throw new JsonParseException(parser, "Unrecognized field \"" + name + "\" for Account");
+            }
+        }
+        return account;
+    }
+
+
+    /**
+     * @param generator the generator to write to.
+     * @param account the account to write as one JSON object.
+     * @throws IOException if the generator could not write.
+     */
+    static void write(JsonGenerator generator, Account account) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ACCOUNT_ID);
+        generator.writeNumber(account.account_id);
+        generator.writeFieldName(USERNAME);
+        generator.writeString(account.username);
+        generator.writeFieldName(PASSWORD);
+        generator.writeString(account.password);
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,349 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded, in-process read-through cache with LRU eviction and per-entry time-to-live.
+ *
+ * A loader that returns null is cached as a negative entry with its own, usually shorter, TTL, so
+ * repeated lookups of missing keys are absorbed too. A loader that cannot tell, because the
+ * database failed, must throw instead: the exception reaches the caller and nothing is cached.
+ *
+ * The cache is split into segments by key hash, each an access-ordered map with its own lock and
+ * its own share of maximumSize, so hits on different segments do not contend. Eviction is LRU
+ * within a segment, which approximates LRU over the whole cache once it holds many entries per
+ * segment; caches too small for that have fewer segments, down to one.
+ *
+ * Loads run outside the lock; a load that overlaps an invalidate() or put() of the same key is not
+ * stored, so a slow reader can never overwrite a fresher value with a stale one. Writes are counted
+ * per stripe of keys rather than per cache, so a steady stream of writes to other keys does not
+ * keep loads from being stored.
+ *
+ * The locks are ReentrantLocks and are never held while loading.
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * The most segments a cache is split into, a power of two.
+     */
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Fewest entries per segment; smaller caches get fewer segments, so LRU stays close to exact.
+     */
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    /**
+     * Number of write stripes, a power of two and a multiple of the segment count, so that each 
+     * stripe belongs to one segment and is only touched under that segment's lock. Keys that share 
+     * a stripe can only cost each other a discarded load, never a stale entry.
+     */
+    private static final int WRITE_STRIPES = 1024;
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Bumped by every write to a key of the stripe, so that loads which raced with a write can tell.
+     */
+    private final long[] writeStamps = new long[WRITE_STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    /**
+     * @param maximumSize the maximum number of entries, positive and negative.
+     * @param ttlMillis how long a loaded value stays fresh.
+     * @param negativeTtlMillis how long a missing key stays cached as missing; 0 disables negative caching.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public BoundedCache(int maximumSize, long ttlMillis, long negativeTtlMillis) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000;
+
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // spread the remainder so the segments add up to exactly maximumSize
+            segments[i] = new Segment<>(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+
+    /**
+     * Return the cached value for the key, loading and caching it on a miss.
+     *
+     * @param key the key to look up.
+     * @param loader computes the value on a miss; may return null for a missing key, and throws if it
+     *        cannot tell whether the key exists.
+     * @return the value, or null if the key does not exist.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        int stripe = stripe(key);
+        Segment<K, V> segment = segmentOf(stripe);
+        long seenWrites;
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits.increment();
+                    return entry.value;
+                }
+                segment.entries.remove(key);
+                expirations.increment();
+            }
+            seenWrites = writeStamps[stripe];
+        } finally {
+            segment.lock.unlock();
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        V value = loader.apply(key);
+        loadLatency.record(System.nanoTime() - start);
+
+        if (value == null && negativeTtlNanos <= 0) {
+            return null;
+        }
+
+        segment.lock.lock();
+        try {
+            if (writeStamps[stripe] == seenWrites) {
+                store(segment, key, value);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return value;
+    }
+
+
+    /**
+     * Return the cached values for many keys at once, loading every miss with a single call to the loader.
+     *
+     * Keys cached as missing count as hits and are not passed to the loader. Keys the loader does not
+     * return are cached as missing, as in get().
+     *
+     * @param keys the keys to look up.
+     * @param loader computes the values for the keys that missed; keys it leaves out do not exist.
+     * @return the value of every key that exists; keys that do not exist are absent from the map.
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Function<? super List<K>, ? extends Map<K, V>> loader) {
+        Map<K, V> found = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long[] seenWrites = new long[keys.size()];
+        long now = System.nanoTime();
+        for (K key : keys) {
+            int stripe = stripe(key);
+            Segment<K, V> segment = segmentOf(stripe);
+            segment.lock.lock();
+            try {
+                Entry<V> entry = segment.entries.get(key);
+                if (entry != null && entry.expiresAt - now > 0) {
+                    hits.increment();
+                    if (entry.value != null) {
+                        found.put(key, entry.value);
+                    }
+                    continue;
+                }
+                if (entry != null) {
+                    segment.entries.remove(key);
+                    expirations.increment();
+                }
+                seenWrites[missing.size()] = writeStamps[stripe];
+                missing.add(key);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.add(missing.size());
+        long start = System.nanoTime();
+        Map<K, V> loaded = loader.apply(missing);
+        loadLatency.record(System.nanoTime() - start);
+        found.putAll(loaded);
+
+        for (int i = 0; i < missing.size(); i++) {
+            K key = missing.get(i);
+            V value = loaded.get(key);
+            if (value == null && negativeTtlNanos <= 0) {
+                continue;
+            }
+            int stripe = stripe(key);
+            Segment<K, V> segment = segmentOf(stripe);
+            segment.lock.lock();
+            try {
+                if (writeStamps[stripe] == seenWrites[i]) {
+                    store(segment, key, value);
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * @param key the key to look up.
+     * @return the cached value, or null if it is not cached, cached as missing, or expired.
+     */
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentOf(stripe(key));
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            return null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+
+    /**
+     * Cache a freshly written value, replacing any positive or negative entry for the key.
+     *
+     * @param key the key.
+     * @param value the new value, not null.
+     */
+    public void put(K key, V value) {
+        int stripe = stripe(key);
+        Segment<K, V> segment = segmentOf(stripe);
+        segment.lock.lock();
+        try {
+            writeStamps[stripe]++;
+            store(segment, key, value);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+
+    /**
+     * Drop the entry for a key whose value has changed or gone away.
+     *
+     * @param key the key.
+     */
+    public void invalidate(K key) {
+        int stripe = stripe(key);
+        Segment<K, V> segment = segmentOf(stripe);
+        segment.lock.lock();
+        try {
+            writeStamps[stripe]++;
+            segment.entries.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (WRITE_STRIPES - 1);
+    }
+
+
+    private Segment<K, V> segmentOf(int stripe) {
+        return segments[stripe & (segments.length - 1)];
+    }
+
+
+    private void store(Segment<K, V> segment, K key, V value) {
+        long ttl = value == null ? negativeTtlNanos : ttlNanos;
+        segment.entries.put(key, new Entry<>(value, System.nanoTime() + ttl));
+
+        Iterator<Entry<V>> eldest = segment.entries.values().iterator();
+        while (segment.entries.size() > segment.maximumSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+
+    /**
+     * @return the number of cached entries, including expired ones not yet removed.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+
+    /**
+     * @return hit ratio, eviction and load-latency figures for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        out.put("size", size());
+        out.put("maximum_size", maximumSize);
+        out.put("hits", hitCount);
+        out.put("misses", missCount);
+        out.put("hit_ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        out.put("evictions", evictions.sum());
+        out.put("expirations", expirations.sum());
+        out.put("load_latency", loadLatency.snapshot());
+        return out;
+    }
+
+
+    /**
+     * One segment of the cache: its entries in access order, the lock guarding them and the stripes 
+     * that map to it, and its share of maximumSize.
+     */
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final int maximumSize;
+
+        Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
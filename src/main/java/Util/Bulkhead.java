@@ -0,0 +1,101 @@
+package Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded executor for one class of blocking work, such as database reads.
+ *
+ * Work is run on a fixed number of threads with a bounded queue in front of them. When both are
+ * full, submit() fails straight away instead of queueing without limit, so a flood of one kind of
+ * work is turned away at the door rather than starving everything else. Giving each kind of work
+ * its own bulkhead keeps, say, slow writes from using up the threads that reads need.
+ *
+ * The time each task waits in the queue and the time it runs are recorded for the metrics endpoint.
+ *
+ * With server.virtualThreads set, the bulkhead's threads are virtual. The thread count still caps
+ * how much of its kind of work runs at once; what changes is that a task blocked on the database
+ * no longer holds a platform thread.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram waitLatency = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+
+    /**
+     * @param name the name of the bulkhead, used for its thread names.
+     * @param threads the number of tasks that may run at once.
+     * @param queueCapacity the number of tasks that may wait for a thread.
+     */
+    public Bulkhead(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                VirtualThreads.threadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Run a task on one of the bulkhead's threads.
+     *
+     * @param task the work to run.
+     * @return a future completing with the task's result, or failing with whatever it threw.
+     * @throws RejectedExecutionException if every thread is busy and the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                waitLatency.record(startedAt - queuedAt);
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    runLatency.record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return future;
+    }
+
+
+    /**
+     * @return queue depth, rejection and latency figures for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("name", name);
+        out.put("threads", executor.getMaximumPoolSize());
+        out.put("active", executor.getActiveCount());
+        out.put("queue_depth", executor.getQueue().size());
+        out.put("queue_capacity", queueCapacity);
+        out.put("submitted", submitted.sum());
+        out.put("rejected", rejected.sum());
+        out.put("wait_latency", waitLatency.snapshot());
+        out.put("run_latency", runLatency.snapshot());
+        return out;
+    }
+}
@@ -0,0 +1,73 @@
+package Util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A growable bit set over non-negative ints that is safe to share between threads.
+ *
+ * Meant for dense id spaces such as auto-increment primary keys, where one bit per id is far smaller
+ * than a set of boxed Integers: a million ids fit in 125 KB.
+ */
+public class ConcurrentBitSet {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] words = new long[16];
+    private int cardinality;
+
+    /**
+     * @param index a non-negative int.
+     * @return true if the bit is set; false for negative indexes.
+     */
+    public boolean get(int index) {
+        if (index < 0) {
+            return false;
+        }
+
+        lock.readLock().lock();
+        try {
+            int word = index >>> 6;
+            return word < words.length && (words[word] & (1L << index)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param index a non-negative int.
+     */
+    public void set(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("negative index: " + index);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int word = index >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            long bit = 1L << index;
+            if ((words[word] & bit) == 0) {
+                words[word] |= bit;
+                cardinality++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @return the number of bits set.
+     */
+    public int cardinality() {
+        lock.readLock().lock();
+        try {
+            return cardinality;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
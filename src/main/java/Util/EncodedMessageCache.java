@@ -0,0 +1,284 @@
+package Util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import Model.Message;
+
+/**
+ * A cache of each message's JSON encoding, as UTF-8 bytes, keyed by message_id.
+ *
+ * A message does not change between updates, yet every list response used to run it through the
+ * codec again. A cached encoding is copied as bytes straight to the response stream. The cache is
+ * bounded by the total size of the encodings rather than by a number of entries, and evicts the
+ * least recently used entries to stay within it. With offHeap the encodings are kept in direct
+ * ByteBuffers, outside the Java heap.
+ *
+ * As in BoundedCache, a load that overlaps an invalidate() of the same message is not stored: a
+ * reader opens a Session before it reads the messages from the database, and the session only
+ * stores a message's encoding if no message in its stripe was invalidated since, so an encoding of
+ * a row that has been updated meanwhile is never cached.
+ */
+public class EncodedMessageCache {
+
+    /**
+     * Rough heap cost of one entry besides the encoding itself: the map entry, the boxed key and
+     * the Encoded wrapper.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maximumBytes;
+    private final boolean offHeap;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Encoded> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Total cost of the cached entries, encodings plus ENTRY_OVERHEAD each.
+     */
+    private long bytes;
+
+    /**
+     * Number of write stripes, a power of two. Messages that share a stripe can only cost each
+     * other a discarded encoding, never a stale one.
+     */
+    private static final int WRITE_STRIPES = 1024;
+
+    /**
+     * Bumped by every invalidate().
+     */
+    private long writeSequence;
+
+    /**
+     * The writeSequence of the latest invalidate() in each stripe, so that sessions which raced
+     * with one can tell.
+     */
+    private final long[] lastWrites = new long[WRITE_STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumBytes the memory budget for the cached encodings; 0 disables the cache.
+     * @param offHeap true to keep the encodings in direct ByteBuffers.
+     */
+    public EncodedMessageCache(long maximumBytes, boolean offHeap) {
+        this.maximumBytes = maximumBytes;
+        this.offHeap = offHeap;
+    }
+
+
+    /**
+     * Start writing messages that are about to be read from the database.
+     *
+     * @return a session for writing those messages.
+     */
+    public Session session() {
+        lock.lock();
+        try {
+            return new Session(writeSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Drop the encoding of a message that has been updated or deleted.
+     *
+     * @param message_id the message ID.
+     */
+    public void invalidate(int message_id) {
+        lock.lock();
+        try {
+            lastWrites[stripe(message_id)] = ++writeSequence;
+            Encoded removed = entries.remove(message_id);
+            if (removed != null) {
+                bytes -= removed.cost();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private static int stripe(int message_id) {
+        return (message_id ^ (message_id >>> 16)) & (WRITE_STRIPES - 1);
+    }
+
+
+    private Encoded lookup(int message_id) {
+        lock.lock();
+        try {
+            Encoded encoded = entries.get(message_id);
+            if (encoded != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return encoded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void store(int message_id, Encoded encoded, long seenWrites) {
+        if (encoded.cost() > maximumBytes) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (lastWrites[stripe(message_id)] > seenWrites) {
+                return;
+            }
+            Encoded replaced = entries.put(message_id, encoded);
+            bytes += encoded.cost();
+            if (replaced != null) {
+                bytes -= replaced.cost();
+            }
+
+            Iterator<Encoded> eldest = entries.values().iterator();
+            while (bytes > maximumBytes && eldest.hasNext()) {
+                bytes -= eldest.next().cost();
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private Encoded encode(Message message) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(128);
+        try (JsonGenerator generator = JsonCodec.factory().createGenerator(out, JsonEncoding.UTF8)) {
+            MessageCodec.write(generator, message);
+        }
+        byte[] json = out.toByteArray();
+        if (!offHeap) {
+            return new Encoded(json, null);
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+        direct.put(json).flip();
+        return new Encoded(null, direct.asReadOnlyBuffer());
+    }
+
+
+    /**
+     * @return the number of cached encodings.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return size, budget and hit ratio figures for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        lock.lock();
+        try {
+            out.put("size", entries.size());
+            out.put("bytes", bytes);
+        } finally {
+            lock.unlock();
+        }
+        out.put("maximum_bytes", maximumBytes);
+        out.put("off_heap", offHeap);
+        out.put("hits", hitCount);
+        out.put("misses", missCount);
+        out.put("hit_ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        out.put("evictions", evictions.sum());
+        return out;
+    }
+
+
+    /**
+     * Writes the messages of one response, from the cache where possible.
+     */
+    public final class Session {
+        private final long seenWrites;
+        /**
+         * Reused to copy off-heap encodings to the stream, which only takes byte arrays.
+         */
+        private byte[] scratch = new byte[0];
+
+        private Session(long seenWrites) {
+            this.seenWrites = seenWrites;
+        }
+
+        /**
+         * Write one message as a JSON object.
+         *
+         * @param out the stream to write the UTF-8 bytes to.
+         * @param message the message, as read after this session was opened.
+         * @throws IOException if the stream could not be written.
+         */
+        public void write(OutputStream out, Message message) throws IOException {
+            if (maximumBytes <= 0) {
+                writeEncoded(out, encode(message));
+                return;
+            }
+
+            Encoded encoded = lookup(message.getMessage_id());
+            if (encoded == null) {
+                encoded = encode(message);
+                store(message.getMessage_id(), encoded, seenWrites);
+            }
+            writeEncoded(out, encoded);
+        }
+
+        private void writeEncoded(OutputStream out, Encoded encoded) throws IOException {
+            if (encoded.heap != null) {
+                out.write(encoded.heap);
+                return;
+            }
+            if (scratch.length < encoded.length) {
+                scratch = new byte[Math.max(encoded.length, 2 * scratch.length)];
+            }
+            encoded.direct.duplicate().get(scratch, 0, encoded.length);
+            out.write(scratch, 0, encoded.length);
+        }
+    }
+
+
+    /**
+     * One message's encoding, as UTF-8 JSON bytes on the heap or in a direct buffer.
+     */
+    private static final class Encoded {
+        private final byte[] heap;
+        private final ByteBuffer direct;
+        private final int length;
+
+        Encoded(byte[] heap, ByteBuffer direct) {
+            this.heap = heap;
+            this.direct = direct;
+            this.length = heap != null ? heap.length : direct.remaining();
+        }
+
+        long cost() {
+            return length + ENTRY_OVERHEAD;
+        }
+
+    }
+}
@@ -0,0 +1,257 @@
+package Util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import Model.Account;
+import Model.Message;
+import io.javalin.json.JsonMapper;
+
+/**
+ * The one JSON codec shared by the whole application.
+ *
+ * An ObjectMapper is expensive to build and keeps its serializer and deserializer caches for its own
+ * lifetime, so creating one per request pays for that warm-up on every call. This class holds a
+ * single configured mapper for everything else, and reads and writes Account and Message, the
+ * types on every hot path, with the hand-written streaming codecs AccountCodec and MessageCodec.
+ * Those parse straight from the request InputStream, so the body is never copied into a String,
+ * single-object bodies are capped at MAX_OBJECT_BODY_BYTES and batches at MAX_BATCH_ITEM_BYTES
+ * per message.
+ *
+ * The codec is also Javalin's JsonMapper (see javalinMapper()), so context.json() goes through the
+ * same mapper and the same hand-written writers.
+ */
+public final class JsonCodec implements JsonMapper {
+
+    /**
+     * Largest request body accepted for a single account or message. A message_text of 255 chars
+     * is at most about 1.5 KB even with every char escaped, so this leaves ample room while
+     * keeping a client from streaming megabytes into a field that will be rejected anyway.
+     */
+    public static final int MAX_OBJECT_BODY_BYTES = 8 * 1024;
+
+    /**
+     * Request body allowance per message of a batch, so a batch of n messages is capped at n times 
+     * this. A message with a 255-char message_text fits within it unless most chars are escaped.
+     */
+    public static final int MAX_BATCH_ITEM_BYTES = 2 * 1024;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ObjectReader ID_LIST_READER = MAPPER.readerFor(new TypeReference<List<Integer>>() {});
+
+    private static final JsonCodec INSTANCE = new JsonCodec();
+
+    private JsonCodec() {
+    }
+
+
+    /**
+     * @return the codec as a Javalin JsonMapper, for config.jsonMapper().
+     */
+    public static JsonMapper javalinMapper() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * @return the shared mapper, for types without a pre-built reader or writer.
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+
+    /**
+     * @return the shared mapper's JsonFactory, for code that streams tokens itself.
+     */
+    public static JsonFactory factory() {
+        return MAPPER.getFactory();
+    }
+
+
+    /**
+     * @param in a JSON account, such as a request body.
+     * @return the account.
+     * @throws PayloadTooLargeException if the body is longer than MAX_OBJECT_BODY_BYTES.
+     * @throws IOException if the JSON is malformed or does not describe an account.
+     */
+    public static Account readAccount(InputStream in) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(new LimitedInputStream(in, MAX_OBJECT_BODY_BYTES))) {
+            parser.nextToken();
+            return AccountCodec.read(parser);
+        }
+    }
+
+
+    /**
+     * @param in a JSON message, such as a request body.
+     * @param maxTextLength the longest message_text to accept.
+     * @return the message.
+     * @throws PayloadTooLargeException as soon as the message_text or the body is found to be too long.
+     * @throws IOException if the JSON is malformed or does not describe a message.
+     */
+    public static Message readMessage(InputStream in, int maxTextLength) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(new LimitedInputStream(in, MAX_OBJECT_BODY_BYTES))) {
+            parser.nextToken();
+            return MessageCodec.read(parser, maxTextLength);
+        }
+    }
+
+
+    /**
+     * Read a list of messages given either as one JSON array or as a sequence of JSON objects, such as
+     * newline-delimited JSON. Reading stops after maxCount + 1 messages, so that a caller can tell an
+     * oversized list from a full one without the rest being parsed.
+     *
+     * @param in the messages, such as a request body.
+     * @param maxCount the most messages the caller accepts.
+     * @param maxTextLength the longest message_text to accept.
+     * @return up to maxCount + 1 messages.
+     * @throws PayloadTooLargeException as soon as a message_text is found to be too long, or the body 
+     *         to be longer than maxCount times MAX_BATCH_ITEM_BYTES.
+     * @throws IOException if the JSON is malformed or an element does not describe a message.
+     */
+    public static List<Message> readMessages(InputStream in, int maxCount, int maxTextLength) throws IOException {
+        List<Message> messages = new ArrayList<>();
+        InputStream limited = new LimitedInputStream(in, maxCount * MAX_BATCH_ITEM_BYTES);
+        try (JsonParser parser = MAPPER.getFactory().createParser(limited)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY && messages.size() <= maxCount) {
+                messages.add(MessageCodec.read(parser, maxTextLength));
+                token = parser.nextToken();
+            }
+
+            if (array && token == null) {
+                throw new JsonParseException(parser, "Unexpected end of input inside a JSON array");
+            }
+        }
+        return messages;
+    }
+
+
+    /**
+     * @param json a JSON array of message ids.
+     * @return the ids.
+     * @throws JsonProcessingException if the JSON is malformed or not a list of integers.
+     */
+    public static List<Integer> readMessageIds(String json) throws JsonProcessingException {
+        return ID_LIST_READER.readValue(json);
+    }
+
+
+    /**
+     * @param generator the generator to write to.
+     * @param message the message to write as one JSON object.
+     * @throws IOException if the generator could not write.
+     */
+    public static void writeMessage(JsonGenerator generator, Message message) throws IOException {
+        MessageCodec.write(generator, message);
+    }
+
+
+    /**
+     * Serialize a response body for context.json(), with the hand-written codecs for Account and Message.
+     */
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        try {
+            if (type != Message.class && type != Account.class) {
+                return MAPPER.writeValueAsString(obj);
+            }
+
+            StringWriter out = new StringWriter(128);
+            try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+                if (type == Message.class) {
+                    MessageCodec.write(generator, (Message) obj);
+                } else {
+                    AccountCodec.write(generator, (Account) obj);
+                }
+            }
+            return out.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public <T> T fromJsonString(String json, Type type) {
+        try {
+            return MAPPER.readerFor(MAPPER.constructType(type)).readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public <T> T fromJsonStream(InputStream json, Type type) {
+        try {
+            return MAPPER.readerFor(MAPPER.constructType(type)).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Fails the read once more than limit bytes have been consumed, so an oversized body is cut off
+     * after at most one parser buffer instead of being read to the end.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final int limit;
+        private int count;
+
+        LimitedInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        private void consumed(int n) throws PayloadTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new PayloadTooLargeException("request body is longer than " + limit + " bytes");
+            }
+        }
+    }
+}
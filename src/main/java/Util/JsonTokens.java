@@ -0,0 +1,79 @@
+package Util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Scalar conversions shared by the hand-written codecs. They accept the same coercions Jackson
+ * databinding applies by default, so switching a type to a hand-written codec does not change
+ * which request bodies are accepted.
+ */
+final class JsonTokens {
+
+    private JsonTokens() {
+    }
+
+
+    static void expectStartObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + parser.currentToken());
+        }
+    }
+
+
+    static int intValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getIntValue();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING:
+                try {
+                    return Integer.parseInt(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Not an int: \"" + parser.getText() + "\"", e);
+                }
+            default:
+                throw new JsonParseException(parser, "Expected an int but found " + token);
+        }
+    }
+
+
+    static long longValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getLongValue();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING:
+                try {
+                    return Long.parseLong(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Not a long: \"" + parser.getText() + "\"", e);
+                }
+            default:
+                throw new JsonParseException(parser, "Expected a long but found " + token);
+        }
+    }
+
+
+    static String textValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getText();
+            default:
+                throw new JsonParseException(parser, "Expected a string but found " + token);
+        }
+    }
+}
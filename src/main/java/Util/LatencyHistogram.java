@@ -0,0 +1,93 @@
+package Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets. Recording is a couple of
+ * LongAdder increments, so it is cheap enough to sit on the hot path of every connection borrow.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bucket i counts samples below 2^i microseconds; the last bucket catches everything above.
+     */
+    private static final int BUCKETS = 24;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+
+    /**
+     * Record one sample.
+     *
+     * @param nanos the measured latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+
+    /**
+     * @return the number of recorded samples.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    /**
+     * Estimate a percentile from the bucket counts. The result is the upper bound of the bucket the
+     * percentile falls into, so it over-reports by at most a factor of two.
+     *
+     * @param percentile a value between 0 and 100.
+     * @return the estimated latency in microseconds.
+     */
+    public long percentileMicros(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return maxNanos.get() / 1_000;
+    }
+
+
+    /**
+     * @return a point-in-time summary suitable for the metrics endpoint.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long total = count.sum();
+        out.put("count", total);
+        out.put("mean_us", total == 0 ? 0 : totalNanos.sum() / total / 1_000);
+        out.put("p50_us", percentileMicros(50));
+        out.put("p90_us", percentileMicros(90));
+        out.put("p99_us", percentileMicros(99));
+        out.put("max_us", maxNanos.get() / 1_000);
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+package Util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import Model.Message;
+
+/**
+ * Hand-written streaming JSON codec for Message.
+ *
+ * Reading walks the parser's tokens straight into the fields, with no reflection, no intermediate
+ * tree and no String copy of the body. It accepts what databinding accepted for these fields:
+ * numbers given as strings, scalars as message_text, null as 0 for the numeric fields, and it
+ * rejects unknown fields. Writing emits the same fields in the same order as databinding, with
+ * field names encoded once up front.
+ */
+final class MessageCodec {
+
+    private static final SerializedString MESSAGE_ID = new SerializedString("message_id");
+    private static final SerializedString POSTED_BY = new SerializedString("posted_by");
+    private static final SerializedString MESSAGE_TEXT = new SerializedString("message_text");
+    private static final SerializedString TIME_POSTED_EPOCH = new SerializedString("time_posted_epoch");
+
+    private MessageCodec() {
+    }
+
+
+    /**
+     * @param parser a parser positioned on the START_OBJECT of a message.
+     * @param maxTextLength the longest message_text to accept.
+     * @return the message; the parser is left on its END_OBJECT.
+     * @throws PayloadTooLargeException as soon as a message_text longer than maxTextLength is read.
+     * @throws IOException if the JSON is malformed or does not describe a message.
+     */
+    static Message read(JsonParser parser, int maxTextLength) throws IOException {
+        JsonTokens.expectStartObject(parser);
+
+        Message message = new Message();
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "message_id":
+                    message.message_id = JsonTokens.intValue(parser, token);
+                    break;
+                case "posted_by":
+                    message.posted_by = JsonTokens.intValue(parser, token);
+                    break;
+                case "message_text":
+                    message.message_text = JsonTokens.textValue(parser, token);
+                    if (message.message_text != null && message.message_text.length() > maxTextLength) {
+                        throw new PayloadTooLargeException("message_text is longer than " + maxTextLength);
+                    }
+                    break;
+                case "time_posted_epoch":
+                    message.time_posted_epoch = JsonTokens.longValue(parser, token);
+                    break;
+                default:
+                    throw new JsonParseException(parser, "Unrecognized field \"" + name + "\" for Message");
+            }
+        }
+        return message;
+    }
+
+
+    /**
+     * @param generator the generator to write to.
+     * @param message the message to write as one JSON object.
+     * @throws IOException if the generator could not write.
+     */
+    static void write(JsonGenerator generator, Message message) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(MESSAGE_ID);
+        generator.writeNumber(message.message_id);
+        generator.writeFieldName(POSTED_BY);
+        generator.writeNumber(message.posted_by);
+        generator.writeFieldName(MESSAGE_TEXT);
+        generator.writeString(message.message_text);
+        generator.writeFieldName(TIME_POSTED_EPOCH);
+        generator.writeNumber(message.time_posted_epoch);
+        generator.writeEndObject();
+    }
+}
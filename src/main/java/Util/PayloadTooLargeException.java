@@ -0,0 +1,20 @@
+package Util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Thrown by JsonCodec when a request body, or a field inside it, is longer than the caller allows.
+ *
+ * It is raised as soon as the limit is crossed, so the rest of the body is never read or buffered.
+ */
+public class PayloadTooLargeException extends JsonProcessingException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message what was too large.
+     */
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,186 @@
+package Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A "definitely absent / maybe present" set of strings that grows as it fills.
+ *
+ * This is a scalable Bloom filter: a chain of plain Bloom filters ("slices"). Keys are added to the
+ * newest slice, and once it holds its planned number of keys a new slice is added with twice the
+ * capacity and half the false-positive rate. So the overall false-positive rate stays below twice
+ * the first slice's rate however many keys are added, and nothing needs to be sized up front.
+ *
+ * Lookups and adds are lock-free; the lock is only taken to add a slice.
+ */
+public class ScalableBloomFilter {
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final ReentrantLock growLock = new ReentrantLock();
+    private volatile Slice[] slices;
+
+    /**
+     * @param initialCapacity the number of keys the first slice is sized for.
+     * @param falsePositiveRate the target false-positive rate of the first slice, e.g. 0.01.
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("capacity must be positive and the rate between 0 and 1");
+        }
+        this.slices = new Slice[] { new Slice(initialCapacity, falsePositiveRate) };
+    }
+
+
+    /**
+     * @param key the key to look up.
+     * @return false if the key was definitely never added; true if it may have been.
+     */
+    public boolean mightContain(CharSequence key) {
+        long hash = hash(key);
+        for (Slice slice : slices) {
+            if (slice.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @param key the key to add.
+     */
+    public void add(CharSequence key) {
+        long hash = hash(key);
+        Slice[] current = slices;
+        Slice newest = current[current.length - 1];
+        newest.add(hash);
+        if (newest.count.incrementAndGet() >= newest.capacity) {
+            grow(current);
+        }
+    }
+
+
+    private void grow(Slice[] seen) {
+        growLock.lock();
+        try {
+            if (slices != seen) {
+                return;
+            }
+            Slice newest = seen[seen.length - 1];
+            long capacity = Math.min((long) newest.capacity * 2, Integer.MAX_VALUE);
+            Slice[] grown = new Slice[seen.length + 1];
+            System.arraycopy(seen, 0, grown, 0, seen.length);
+            grown[seen.length] = new Slice((int) capacity, newest.falsePositiveRate / 2);
+            slices = grown;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the approximate number of keys added.
+     */
+    public long size() {
+        long size = 0;
+        for (Slice slice : slices) {
+            size += slice.count.get();
+        }
+        return size;
+    }
+
+
+    /**
+     * @return sizing figures for the metrics endpoint.
+     */
+    public Map<String, Object> metrics() {
+        Slice[] current = slices;
+        long bits = 0;
+        double allAbsent = 1.0;
+        for (Slice slice : current) {
+            bits += slice.bits;
+            allAbsent *= 1 - slice.expectedFalsePositiveRate();
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("keys", size());
+        out.put("slices", current.length);
+        out.put("bytes", bits / 8);
+        out.put("expected_false_positive_rate", 1 - allAbsent);
+        return out;
+    }
+
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer so that both halves are
+     * well distributed for double hashing.
+     */
+    private static long hash(CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+
+    private static final class Slice {
+        final int capacity;
+        final double falsePositiveRate;
+        final long bits;
+        final int hashes;
+        final AtomicLongArray words;
+        final AtomicInteger count = new AtomicInteger();
+
+        Slice(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long wanted = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / LN2_SQUARED);
+            this.words = new AtomicLongArray((int) Math.min((wanted + 63) >>> 6, Integer.MAX_VALUE - 8));
+            this.bits = (long) words.length() << 6;
+            this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+        }
+
+        /**
+         * The textbook (1 - e^(-kn/m))^k estimate for the keys added so far.
+         */
+        double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * count.get() / bits), hashes);
+        }
+    }
+}
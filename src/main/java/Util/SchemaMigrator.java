@@ -0,0 +1,158 @@
+package Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.h2.tools.RunScript;
+
+/**
+ * Brings the database schema up to date by running versioned migration scripts in order.
+ *
+ * Scripts live on the classpath under db/migration and are named V{version}__{description}.sql.
+ * Each applied script is recorded in the schema_version table together with a CRC32 checksum of
+ * its contents. On every run, scripts that are already recorded are skipped, and the rest are
+ * applied in version order, each in its own transaction.
+ *
+ * Migrations only ever add to the schema; they never drop tables or data. A script that was
+ * edited after being applied has a different checksum, and the migrator refuses to continue
+ * rather than guess what changed.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCATION = "db/migration/";
+
+    /**
+     * Every migration, in the order it must be applied. A new script is added at the end and
+     * never renumbered or edited once released.
+     */
+    private static final String[] MIGRATIONS = {
+        "V1__baseline.sql",
+        "V2__message_posted_by_time_index.sql",
+        "V3__message_account_timeline_index.sql",
+        "V4__message_time_index.sql",
+        "V5__message_change_log.sql",
+    };
+
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version int primary key, "
+            + "description varchar(255), "
+            + "checksum bigint, "
+            + "installed_on timestamp, "
+            + "execution_ms bigint)";
+
+    /**
+     * Apply every migration that is not yet recorded in schema_version.
+     *
+     * @param connection a connection to the database to migrate.
+     * @return the number of migrations applied by this call.
+     * @throws SQLException if a script fails; that script's changes are rolled back where the
+     *         database allows it, and later scripts are not run.
+     * @throws IllegalStateException if an applied script has since been changed.
+     */
+    public static int migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_VERSION_TABLE);
+        }
+
+        Map<Integer, Long> applied = appliedChecksums(connection);
+        int count = 0;
+        for (String name : MIGRATIONS) {
+            int version = versionOf(name);
+            byte[] script = read(name);
+            long checksum = checksum(script);
+
+            Long recorded = applied.get(version);
+            if (recorded != null) {
+                if (recorded != checksum) {
+                    throw new IllegalStateException("migration " + name + " was changed after it was applied");
+                }
+                continue;
+            }
+
+            apply(connection, name, version, script, checksum);
+            count++;
+        }
+        return count;
+    }
+
+
+    private static void apply(Connection connection, String name, int version, byte[] script, long checksum)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            long start = System.nanoTime();
+            RunScript.execute(connection, new InputStreamReader(new ByteArrayInputStream(script), StandardCharsets.UTF_8));
+
+            String sql = "INSERT INTO schema_version (version, description, checksum, installed_on, execution_ms) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, version);
+                ps.setString(2, descriptionOf(name));
+                ps.setLong(3, checksum);
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.setLong(5, (System.nanoTime() - start) / 1_000_000);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+
+    private static Map<Integer, Long> appliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT version, checksum FROM schema_version");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+
+    private static byte[] read(String name) {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + name)) {
+            if (in == null) {
+                throw new IllegalStateException("migration " + name + " is not on the classpath");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException("migration " + name + " could not be read", e);
+        }
+    }
+
+
+    private static long checksum(byte[] script) {
+        CRC32 crc = new CRC32();
+        crc.update(script);
+        return crc.getValue();
+    }
+
+
+    private static int versionOf(String name) {
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+
+
+    private static String descriptionOf(String name) {
+        return name.substring(name.indexOf("__") + 2, name.length() - ".sql".length()).replace('_', ' ');
+    }
+}
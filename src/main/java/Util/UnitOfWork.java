@@ -0,0 +1,124 @@
+package Util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of work shares one pooled connection across every DAO call made on the current thread
+ * until the outermost unit of work is closed.
+ *
+ * The controller opens a unit of work around each HTTP request, and every DAO method opens its own
+ * with try-with-resources. A DAO method called inside a request joins the request's unit of work
+ * instead of borrowing a second connection; called on its own, it gets a private one. The
+ * connection is borrowed lazily on first use, so requests that never reach the database never
+ * touch the pool, and it is returned to the pool as soon as the outermost unit of work closes.
+ *
+ * Statements and result sets are still owned by the DAO method that creates them and should be
+ * closed there with try-with-resources.
+ *
+ * Work that must be atomic goes through inTransaction(). A transaction started inside another one
+ * simply joins it, so only the outermost transaction commits.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private Connection connection;
+    private int depth = 1;
+
+    private UnitOfWork() {
+    }
+
+
+    /**
+     * Join the unit of work bound to this thread, or start a new one if there is none.
+     * Every call must be paired with a close().
+     *
+     * @return the unit of work bound to this thread.
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork current = CURRENT.get();
+        if (current != null && current.depth > 0) {
+            current.depth++;
+            return current;
+        }
+
+        UnitOfWork uow = new UnitOfWork();
+        CURRENT.set(uow);
+        return uow;
+    }
+
+
+    /**
+     * @return the connection of this unit of work, borrowing one from the pool on first use.
+     * @throws SQLException if no connection could be obtained from the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = ConnectionUtil.getPool().getConnection();
+        }
+        return connection;
+    }
+
+
+    /**
+     * Run work inside a transaction on this unit of work's connection. If a transaction is already
+     * open, the work joins it and the outer caller decides whether to commit; otherwise the work is
+     * committed if it returns normally and rolled back if it throws.
+     *
+     * @param work the work to run.
+     * @return whatever the work returns.
+     * @throws SQLException if the work or the commit fails.
+     */
+    public <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        Connection conn = getConnection();
+        if (!conn.getAutoCommit()) {
+            return work.run(conn);
+        }
+
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+
+    /**
+     * A piece of JDBC work run by inTransaction().
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+
+    /**
+     * Leave the unit of work. When the outermost caller leaves, the connection is returned to the
+     * pool and the unit of work is unbound from the thread.
+     */
+    @Override
+    public void close() {
+        if (--depth > 0) {
+            return;
+        }
+
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses between platform and virtual threads for the server's own executors.
+ *
+ * Virtual threads are opt-in: they are used only when the server.virtualThreads system property is
+ * true and the JDK has them (21 or later). The project still compiles for Java 11, so they are
+ * created through reflection, and on an older JDK the property is ignored with a warning.
+ *
+ * Code that blocks on JDBC from a virtual thread must not hold a monitor while it waits, or the
+ * virtual thread pins its carrier thread. Every lock around database work in this project is a
+ * java.util.concurrent lock or semaphore for that reason; the remaining monitors are inside the H2
+ * driver, are per connection and are uncontended, since a connection is used by one thread at a time.
+ */
+public class VirtualThreads {
+
+    private static final boolean ENABLED = Boolean.getBoolean("server.virtualThreads") && checkAvailable();
+
+    private VirtualThreads() {
+    }
+
+
+    /**
+     * @return true if the server runs its request handling and database work on virtual threads.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+
+    /**
+     * Create a thread factory for one of the server's executors.
+     *
+     * @param name the prefix of the threads' names.
+     * @return a factory for virtual threads if they are enabled, or for daemon platform threads otherwise.
+     */
+    public static ThreadFactory threadFactory(String name) {
+        if (ENABLED) {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+                ofVirtual = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, name + "-", 1L);
+                return (ThreadFactory) builder.getMethod("factory").invoke(ofVirtual);
+            } catch (ReflectiveOperationException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    private static boolean checkAvailable() {
+        try {
+            // a preview build without --enable-preview has the method but throws when it is called
+            Thread.class.getMethod("ofVirtual").invoke(null);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("server.virtualThreads is set, but this JDK (" + System.getProperty("java.version")
+                    + ") has no virtual threads; using platform threads");
+            return false;
+        }
+    }
+}
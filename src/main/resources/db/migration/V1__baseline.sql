@@ -0,0 +1,14 @@
+-- The schema as it stood before migrations were introduced. Guarded with IF NOT EXISTS so that
+-- databases created from SocialMedia.sql can adopt it without losing data.
+create table if not exists account (
+    account_id int primary key auto_increment,
+    username varchar(255) unique,
+    password varchar(255)
+);
+create table if not exists message (
+    message_id int primary key auto_increment,
+    posted_by int,
+    message_text varchar(255),
+    time_posted_epoch bigint,
+    foreign key (posted_by) references  account(account_id)
+);
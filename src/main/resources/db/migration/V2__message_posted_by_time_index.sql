@@ -0,0 +1,3 @@
+-- Serves GET /accounts/{account_id}/messages, which filters on posted_by, and lets per-account
+-- reads that order by time_posted_epoch skip the sort.
+create index if not exists idx_message_posted_by_time on message (posted_by, time_posted_epoch);
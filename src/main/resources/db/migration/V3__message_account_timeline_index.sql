@@ -0,0 +1,7 @@
+-- Serves newest-first account timelines. H2 does not scan an index backwards, so the columns are
+-- descending to match ORDER BY posted_by DESC, time_posted_epoch DESC, message_id DESC, and
+-- message_id is included so the order is total and the sort is skipped. It supersedes the
+-- ascending index from V2: any posted_by or posted_by + time range lookup can use it instead.
+create index if not exists idx_message_posted_by_time_desc
+    on message (posted_by desc, time_posted_epoch desc, message_id desc);
+drop index if exists idx_message_posted_by_time;
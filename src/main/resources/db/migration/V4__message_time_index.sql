@@ -0,0 +1,4 @@
+-- Serves GET /messages?since=&until=, which scans a window of time_posted_epoch in
+-- (time_posted_epoch, message_id) order. message_id makes the order total, so pages can seek
+-- to a cursor and the sort is skipped.
+create index if not exists idx_message_time on message (time_posted_epoch, message_id);
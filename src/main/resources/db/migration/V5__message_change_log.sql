@@ -0,0 +1,9 @@
+-- Change log behind GET /messages/changes. Every insert, update and delete of a message appends
+-- one row in the same transaction, and seq orders the changes. Rows only say which message
+-- changed and how; the current contents are joined from message when the log is read. Old rows
+-- are pruned, so the log keeps a bounded window of recent changes.
+create table if not exists message_change (
+    seq bigint primary key auto_increment,
+    message_id int not null,
+    op char(1) not null
+);
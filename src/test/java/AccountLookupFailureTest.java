@@ -0,0 +1,77 @@
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.AccountDAO;
+import Model.Account;
+import Service.AccountService;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+
+public class AccountLookupFailureTest {
+    AtomicBoolean databaseDown;
+    AccountService accountService;
+
+    /**
+     * Before every test, reset the database and build an AccountService whose DAO fails while databaseDown is set.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        databaseDown = new AtomicBoolean();
+        accountService = new AccountService(new AccountDAO() {
+            @Override
+            public Account getAccountByUsername(String username) {
+                if (databaseDown.get()) {
+                    throw new DataAccessException(new SQLException("database is down"));
+                }
+                return super.getAccountByUsername(username);
+            }
+        });
+    }
+
+    /**
+     * Log in while the database is down, then again once it is back
+     *
+     * Expected Result:
+     *  the first login fails instead of reporting the user unknown, and the second succeeds
+     */
+    @Test
+    public void loginFailureIsNotCached() {
+        databaseDown.set(true);
+        try {
+            accountService.login(new Account("testuser1", "password"));
+            Assert.fail("expected the login to fail");
+        } catch (DataAccessException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        databaseDown.set(false);
+        Assert.assertEquals(new Account(1, "testuser1", "password"),
+                accountService.login(new Account("testuser1", "password")));
+    }
+
+
+    /**
+     * Check whether a taken username is available while the database is down, then again once it is back
+     *
+     * Expected Result:
+     *  the first check fails instead of reporting the username free, and the second reports it taken
+     */
+    @Test
+    public void usernameAvailabilityFailureIsNotCached() {
+        databaseDown.set(true);
+        try {
+            accountService.isUsernameAvailable("testuser1");
+            Assert.fail("expected the check to fail");
+        } catch (DataAccessException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        databaseDown.set(false);
+        Assert.assertFalse(accountService.isUsernameAvailable("testuser1"));
+    }
+}
@@ -0,0 +1,66 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import DAO.MessageDAO;
+import Util.ConnectionUtil;
+
+/**
+ * Measures a page of an account's timeline against reading the account's whole message list. It is
+ * not a unit test, so surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... AccountTimelineBenchmark
+ *
+ * It resets the database and gives account 1 bench.messages messages, two per second. Each round
+ * then reads the newest page of bench.pageSize messages, a page from deep in the history, and the
+ * full list, through MessageDAO, and prints the average time of each. The page time should not grow
+ * with the account's history; the full list does.
+ */
+public class AccountTimelineBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("bench.messages", 200_000);
+    private static final int PAGE_SIZE = Integer.getInteger("bench.pageSize", 50);
+    private static final int PAGES = Integer.getInteger("bench.pages", 200);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    private static final long FIRST_TIME = 1669947792L;
+
+    public static void main(String[] args) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1, 'message number ' || x, " + FIRST_TIME + " + x / 2 FROM SYSTEM_RANGE(1, " + MESSAGES + ")");
+        }
+
+        MessageDAO messageDAO = new MessageDAO();
+        // the page that ends at roughly the account's 2000th message, counting from the oldest
+        long deepTime = FIRST_TIME + 1000;
+        int deepId = 2000;
+        long rows = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < PAGES; i++) {
+                rows += messageDAO.getMessagesFromAccountIdBefore(1, null, 0, PAGE_SIZE + 1).size();
+            }
+            long newestNanos = (System.nanoTime() - start) / PAGES;
+
+            start = System.nanoTime();
+            for (int i = 0; i < PAGES; i++) {
+                rows += messageDAO.getMessagesFromAccountIdBefore(1, deepTime, deepId, PAGE_SIZE + 1).size();
+            }
+            long deepNanos = (System.nanoTime() - start) / PAGES;
+
+            start = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                rows += messageDAO.getMessagesFromAccountId(1).size();
+            }
+            long fullNanos = (System.nanoTime() - start) / 3;
+
+            System.out.printf("round %d: newest page %.0f us, deep page %.0f us, full list %.1f ms%n", round + 1,
+                    newestNanos / 1e3, deepNanos / 1e3, fullNanos / 1e6);
+        }
+        System.out.println(rows + " rows read");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Util.BoundedCache;
+
+public class BoundedCacheTest {
+
+    /**
+     * Load a key with a loader that fails, then load it again
+     *
+     * Expected Result:
+     *  the failure reaches the caller and is not cached, so the second load asks the loader again
+     */
+    @Test
+    public void failedLoadIsNotCached() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 60_000, 60_000);
+        try {
+            cache.get(1, key -> {
+                throw new IllegalStateException("database is down");
+            });
+            Assert.fail("expected the loader's exception");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        Assert.assertEquals("one", cache.get(1, key -> "one"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+
+    /**
+     * Load many keys with a loader that fails, then load them again
+     *
+     * Expected Result:
+     *  none of the keys is cached as missing
+     */
+    @Test
+    public void failedBatchLoadIsNotCached() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 60_000, 60_000);
+        try {
+            cache.getAll(List.of(1, 2, 3), keys -> {
+                throw new IllegalStateException("database is down");
+            });
+            Assert.fail("expected the loader's exception");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(0, cache.size());
+        }
+
+        Map<Integer, String> loaded = cache.getAll(List.of(1, 2, 3), keys -> Map.of(1, "one", 2, "two", 3, "three"));
+        Assert.assertEquals(Map.of(1, "one", 2, "two", 3, "three"), loaded);
+    }
+
+
+    /**
+     * Load a key while another key is written, and while the same key is written
+     *
+     * Expected Result:
+     *  a write to another key does not stop the load from being cached; a write to the same key does
+     */
+    @Test
+    public void onlyWritesToTheSameKeyDiscardALoad() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 60_000, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, key -> {
+            loads.incrementAndGet();
+            cache.put(2, "two");
+            return "one";
+        });
+        cache.get(1, key -> {
+            loads.incrementAndGet();
+            return "one";
+        });
+        Assert.assertEquals(1, loads.get());
+
+        String loaded = cache.get(3, key -> {
+            cache.put(3, "fresh three");
+            return "stale three";
+        });
+        Assert.assertEquals("stale three", loaded);
+        Assert.assertEquals("fresh three", cache.getIfPresent(3));
+    }
+
+
+    /**
+     * Fill a small cache, read its first key, then add one more
+     *
+     * Expected Result:
+     *  the least recently used key is evicted, not the one just read
+     */
+    @Test
+    public void evictsTheLeastRecentlyUsedKey() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, 60_000, 60_000);
+        for (int key = 1; key <= 10; key++) {
+            cache.put(key, "value " + key);
+        }
+        cache.getIfPresent(1);
+        cache.put(11, "value 11");
+
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals("value 1", cache.getIfPresent(1));
+        Assert.assertNull(cache.getIfPresent(2));
+    }
+
+
+    /**
+     * Put far more keys than fit into a cache large enough to be split into segments
+     *
+     * Expected Result:
+     *  the segments together hold exactly maximumSize entries
+     */
+    @Test
+    public void segmentsAddUpToMaximumSize() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1_000, 60_000, 60_000);
+        for (int key = 0; key < 100_000; key++) {
+            cache.put(key, "value " + key);
+        }
+        Assert.assertEquals(1_000, cache.size());
+        Assert.assertEquals(99_000L, cache.metrics().get("evictions"));
+    }
+}
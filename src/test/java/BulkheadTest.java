@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Util.Bulkhead;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+import io.javalin.Javalin;
+
+public class BulkheadTest {
+    HttpClient webClient;
+    Bulkhead reads;
+    CountDownLatch release;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database and start the Javalin app on a reads bulkhead of one thread and a
+     * queue of one, with a DAO whose message lookups fail.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        reads = new Bulkhead("test-reads", 1, 1);
+        release = new CountDownLatch(1);
+        MessageService messageService = new MessageService(new MessageDAO() {
+            @Override
+            public Message getMessageById(int message_id) {
+                throw new DataAccessException(new SQLException("database is down"));
+            }
+        });
+        SocialMediaController socialMediaController = new SocialMediaController(messageService, reads,
+                new Bulkhead("test-writes", 1, 1));
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        app.stop();
+    }
+
+    /**
+     * Fill the reads bulkhead's thread and queue, then GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 503, and 200 once the bulkhead has room again
+     */
+    @Test
+    public void fullBulkheadAnswers503() throws IOException, InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        reads.submit(() -> {
+            running.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+        reads.submit(() -> null);
+
+        HttpResponse<String> response = get("/messages");
+        Assert.assertEquals(503, response.statusCode());
+        Assert.assertEquals(1L, reads.metrics().get("rejected"));
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (((Integer) reads.metrics().get("queue_depth") > 0 || (Integer) reads.metrics().get("active") > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        HttpResponse<String> retried = get("/messages");
+        Assert.assertEquals(200, retried.statusCode());
+    }
+
+
+    /**
+     * GET localhost:8080/messages/1 while the database cannot be read
+     *
+     * Expected Response:
+     *  Status Code: 503, since the handler's exception reaches the exception mapper through the bulkhead's future
+     */
+    @Test
+    public void handlerFailureOnBulkheadAnswers503() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages/1");
+        Assert.assertEquals(503, response.statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ConditionalGetTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * GET localhost:8080/messages with the ETag of the previous response, before and after a new message
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while nothing has changed, then 200 with a new ETag
+     */
+    @Test
+    public void getAllMessagesNotModified() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages", null, null);
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        Assert.assertEquals(200, first.statusCode());
+        Assert.assertNotNull(etag);
+
+        HttpResponse<String> second = get("/messages", etag, null);
+        Assert.assertEquals(304, second.statusCode());
+        Assert.assertEquals("", second.body());
+
+        postMessage(1, "a new message");
+
+        HttpResponse<String> third = get("/messages", etag, null);
+        Assert.assertEquals(200, third.statusCode());
+        Assert.assertNotEquals(etag, third.headers().firstValue("ETag").orElse(null));
+    }
+
+
+    /**
+     * GET localhost:8080/accounts/1/messages with the ETag of the previous response, after a message is
+     * posted by another account and after one of account 1's messages is updated
+     *
+     * Expected Response:
+     *  Status Code: 304 after the other account's message, then 200 after the update
+     */
+    @Test
+    public void getAccountMessagesNotModified() throws IOException, InterruptedException {
+        HttpRequest registerRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"user2\", \"password\": \"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(registerRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        String etag = get("/accounts/1/messages", null, null).headers().firstValue("ETag").orElse(null);
+        Assert.assertNotNull(etag);
+
+        postMessage(2, "not account 1's message");
+        Assert.assertEquals(304, get("/accounts/1/messages", etag, null).statusCode());
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> response = get("/accounts/1/messages", etag, null);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().contains("updated message"));
+    }
+
+
+    /**
+     * GET localhost:8080/messages as a JSON array and as NDJSON
+     *
+     * Expected Response:
+     *  different ETags, so that one format's ETag does not match the other
+     */
+    @Test
+    public void getAllMessagesETagDependsOnFormat() throws IOException, InterruptedException {
+        String json = get("/messages", null, null).headers().firstValue("ETag").orElse(null);
+        String ndjson = get("/messages", null, "application/x-ndjson").headers().firstValue("ETag").orElse(null);
+        Assert.assertNotEquals(json, ndjson);
+        Assert.assertEquals(200, get("/messages", json, "application/x-ndjson").statusCode());
+        Assert.assertEquals(304, get("/messages", ndjson, "application/x-ndjson").statusCode());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch, String accept)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(int posted_by, String message_text) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":" + posted_by + ", " +
+                        "\"message_text\": \"" + message_text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
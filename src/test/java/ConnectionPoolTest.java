@@ -0,0 +1,154 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionPool;
+
+public class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    JdbcDataSource dataSource;
+    PrintStream originalOut;
+
+    /**
+     * Before every test, point a fresh DataSource at a private in-memory database, so the pool under test
+     * never touches the application's database.
+     */
+    @Before
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        originalOut = System.out;
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    /**
+     * Borrow the only connection of a pool of one, then borrow again
+     *
+     * Expected Result:
+     *  the second borrow fails with an SQLTimeoutException after the acquire timeout, and succeeds once the
+     *  first connection is returned
+     */
+    @Test
+    public void acquireTimesOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, 100, 60_000, 0, 0);
+        Connection held = pool.getConnection();
+
+        long start = System.nanoTime();
+        try {
+            pool.getConnection();
+            Assert.fail("expected the second borrow to time out");
+        } catch (SQLTimeoutException e) {
+            Assert.assertTrue((System.nanoTime() - start) / 1_000_000 >= 100);
+        }
+
+        held.close();
+        Connection connection = pool.getConnection();
+        Assert.assertEquals(1, pool.getActive());
+        connection.close();
+        Assert.assertEquals(0, pool.getActive());
+    }
+
+
+    /**
+     * Return two connections to a pool with no minimum and a short idle timeout, then wait for the housekeeper
+     *
+     * Expected Result:
+     *  both idle connections are closed
+     */
+    @Test
+    public void idleConnectionsAreEvicted() throws SQLException, InterruptedException {
+        ConnectionPool pool = new ConnectionPool(dataSource, 0, 2, 1_000, 50, 0, 0);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        first.close();
+        second.close();
+        Assert.assertEquals(2, pool.getIdle());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getIdle() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(0, pool.getIdle());
+        Assert.assertEquals(0, pool.metrics().get("total"));
+    }
+
+
+    /**
+     * Return a connection to the pool, then close its physical connection behind the pool's back and borrow again
+     *
+     * Expected Result:
+     *  the dead connection is discarded on borrow and a new, working one is handed out
+     */
+    @Test
+    public void deadConnectionsAreReplacedOnBorrow() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, 1_000, 60_000, 0, 0);
+        Connection borrowed = pool.getConnection();
+        Connection physical = borrowed.unwrap(Connection.class);
+        borrowed.close();
+        physical.close();
+
+        try (Connection connection = pool.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+            Assert.assertNotSame(physical, connection.unwrap(Connection.class));
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(1, resultSet.getInt(1));
+        }
+        Assert.assertEquals(1, pool.metrics().get("total"));
+    }
+
+
+    /**
+     * Hold a connection for longer than the leak threshold
+     *
+     * Expected Result:
+     *  the housekeeper reports the leak once, on a single line naming the code that borrowed the connection
+     */
+    @Test
+    public void leaksAreReportedWithTheBorrower() throws SQLException, InterruptedException {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+
+        ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, 1_000, 60_000, 50, 0);
+        Connection leaked = pool.getConnection();
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!output(captured).contains("Possible connection leak") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            Thread.sleep(1_500);
+        } finally {
+            leaked.close();
+        }
+
+        String[] reports = output(captured).lines()
+                .filter(line -> line.contains("Possible connection leak"))
+                .toArray(String[]::new);
+        Assert.assertEquals(1, reports.length);
+        Assert.assertTrue(reports[0], reports[0].contains("ConnectionPoolTest.leaksAreReportedWithTheBorrower"));
+        Assert.assertFalse(output(captured).contains("java.lang.Throwable"));
+    }
+
+    private String output(ByteArrayOutputStream captured) {
+        return new String(captured.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -3,6 +3,9 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -124,6 +127,31 @@ public class CreateMessageTest {
     }
 
 
+    /**
+     * Sending an http request to POST localhost:8080/messages with a body far larger than any valid message
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: 
+     */
+    @Test
+    public void createMessageBodyTooLarge() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + "a".repeat(1024 * 1024) + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        
+        Assert.assertEquals(400, status);        
+        Assert.assertEquals("", response.body().toString());
+    }
+
+
     /**
      * Sending an http request to POST localhost:8080/messages with a user id that doesnt exist in db
      * 
@@ -149,4 +177,32 @@ public class CreateMessageTest {
     }
 
 
+    /**
+     * Sending an http request to POST localhost:8080/messages as an account that was inserted with SQL after the
+     * app started, so the app has never seen it created
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: JSON representation of message object
+     */
+    @Test
+    public void createMessageUserCreatedOutsideApp() throws IOException, InterruptedException, SQLException {
+        try (Connection connection = ConnectionUtil.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO account (account_id, username, password) VALUES (1000, 'outside', 'password')");
+        }
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1000, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(new Message(2, 1000, "hello message", 1669947792),
+                objectMapper.readValue(response.body(), Message.class));
+    }
 }
@@ -0,0 +1,71 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Model.Message;
+import Util.EncodedMessageCache;
+
+public class EncodedMessageCacheTest {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Write a message through an on-heap and an off-heap cache, first uncached and then cached
+     *
+     * Expected Result:
+     *  every write is the message's JSON, whichever way it was stored
+     */
+    @Test
+    public void writesTheMessageAsJson() throws IOException {
+        Message message = new Message(7, 1, "caf\u00e9 \"quoted\"", 1669947792);
+        for (boolean offHeap : new boolean[] { false, true }) {
+            EncodedMessageCache cache = new EncodedMessageCache(1024 * 1024, offHeap);
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                cache.session().write(out, message);
+                Assert.assertEquals(message,
+                        objectMapper.readValue(new String(out.toByteArray(), StandardCharsets.UTF_8), Message.class));
+            }
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+
+    /**
+     * Open a session, invalidate another message, then write through the session
+     *
+     * Expected Result:
+     *  the encoding is cached, since the invalidated message is a different one
+     */
+    @Test
+    public void invalidatingAnotherMessageKeepsTheEncoding() throws IOException {
+        EncodedMessageCache cache = new EncodedMessageCache(1024 * 1024, false);
+        EncodedMessageCache.Session session = cache.session();
+        cache.invalidate(2);
+        session.write(new ByteArrayOutputStream(), new Message(1, 1, "message", 1669947792));
+        Assert.assertEquals(1, cache.size());
+    }
+
+
+    /**
+     * Open a session, invalidate the message it is about to write, then write through the session
+     *
+     * Expected Result:
+     *  the encoding is not cached, since the session may have read the message before it changed
+     */
+    @Test
+    public void invalidatingTheSameMessageDiscardsTheEncoding() throws IOException {
+        EncodedMessageCache cache = new EncodedMessageCache(1024 * 1024, false);
+        EncodedMessageCache.Session session = cache.session();
+        cache.invalidate(1);
+        session.write(new ByteArrayOutputStream(), new Message(1, 1, "message", 1669947792));
+        Assert.assertEquals(0, cache.size());
+
+        cache.session().write(new ByteArrayOutputStream(), new Message(1, 1, "message", 1669947792));
+        Assert.assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import Model.Message;
+import Util.JsonCodec;
+
+/**
+ * Measures parsing one message body three ways: with a new ObjectMapper per parse, as the handlers
+ * once did; with an ObjectReader bound once from the shared mapper; and with JsonCodec.readMessage,
+ * which the handlers use now. It is not a unit test, so surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... JsonCodecBenchmark
+ *
+ * Each round parses the body bench.parses times each way on a single thread and prints the average
+ * time per parse. A new ObjectMapper is so slow that it is given a hundredth as many parses.
+ */
+public class JsonCodecBenchmark {
+
+    private static final int PARSES = Integer.getInteger("bench.parses", 2_000_000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    public static void main(String[] args) throws IOException {
+        byte[] body = ("{\"posted_by\":1,\"message_text\":\"hello there, this is a moderately sized message\","
+                + "\"time_posted_epoch\":1669947792}").getBytes(StandardCharsets.UTF_8);
+        ObjectReader sharedReader = JsonCodec.mapper().readerFor(Message.class);
+        int newMapperParses = Math.max(1, PARSES / 100);
+
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < newMapperParses; i++) {
+                Message message = new ObjectMapper().readValue(body, Message.class);
+                sink += message.getPosted_by();
+            }
+            long newMapperNanos = (System.nanoTime() - start) / newMapperParses;
+
+            start = System.nanoTime();
+            for (int i = 0; i < PARSES; i++) {
+                Message message = sharedReader.readValue(body);
+                sink += message.getPosted_by();
+            }
+            long sharedReaderNanos = (System.nanoTime() - start) / PARSES;
+
+            start = System.nanoTime();
+            for (int i = 0; i < PARSES; i++) {
+                Message message = JsonCodec.readMessage(new ByteArrayInputStream(body), 255);
+                sink += message.getPosted_by();
+            }
+            long codecNanos = (System.nanoTime() - start) / PARSES;
+
+            System.out.printf("round %d: new ObjectMapper %.2f us, shared reader %.2f us, JsonCodec %.2f us%n",
+                    round + 1, newMapperNanos / 1e3, sharedReaderNanos / 1e3, codecNanos / 1e3);
+        }
+        System.out.println(sink);
+    }
+}
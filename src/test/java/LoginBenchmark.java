@@ -0,0 +1,40 @@
+import Model.Account;
+import Service.AccountService;
+import Util.ConnectionUtil;
+
+/**
+ * Measures AccountService.login with and without the credential cache. It is not a unit test, so
+ * surefire does not run it; run it once as is and once with the cache turned off:
+ *
+ *   java -cp target/classes:target/test-classes:... LoginBenchmark
+ *   java -Daccounts.cache.maximumSize=0 -cp target/classes:target/test-classes:... LoginBenchmark
+ *
+ * It resets the database, registers bench.accounts accounts and then logs in as each of them in
+ * turn, bench.logins times per round on a single thread, printing logins per second for each round.
+ */
+public class LoginBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("bench.accounts", 1_000);
+    private static final int LOGINS = Integer.getInteger("bench.logins", 200_000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    public static void main(String[] args) {
+        ConnectionUtil.resetTestDatabase();
+        AccountService accountService = new AccountService();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountService.insertAccount(new Account("user" + i, "password"));
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOGINS; i++) {
+                if (accountService.login(new Account("user" + (i % ACCOUNTS), "password")) == null) {
+                    throw new IllegalStateException("login failed for user" + (i % ACCOUNTS));
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("round %d: %.0f logins/s%n", round + 1, LOGINS / (nanos / 1e9));
+        }
+        System.exit(0);
+    }
+}
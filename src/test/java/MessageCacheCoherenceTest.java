@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageCacheCoherenceTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * GET localhost:8080/messages/1 before and after a PATCH and a DELETE of the same message
+     *
+     * Expected Response:
+     *  the updated message after the PATCH, and an empty body after the DELETE
+     */
+    @Test
+    public void getMessageByIdAfterUpdateAndDelete() throws IOException, InterruptedException {
+        Assert.assertEquals(new Message(1, 1, "test message 1", 1669947792), getMessage(1));
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assert.assertEquals(new Message(1, 1, "updated message", 1669947792), getMessage(1));
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        Assert.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assert.assertNull(getMessage(1));
+    }
+
+    /**
+     * GET localhost:8080/messages/2 before and after message 2 is created
+     *
+     * Expected Response:
+     *  an empty body before the POST, and the new message after it
+     */
+    @Test
+    public void getMessageByIdAfterInsert() throws IOException, InterruptedException {
+        Assert.assertNull(getMessage(2));
+
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assert.assertEquals(new Message(2, 1, "hello message", 1669947792), getMessage(2));
+    }
+
+    /**
+     * GET localhost:8080/messages before and after a PATCH of a message that is already in the JSON cache
+     *
+     * Expected Response:
+     *  the second list holds the updated message, not the cached encoding of the old one
+     */
+    @Test
+    public void getAllMessagesAfterUpdate() throws IOException, InterruptedException {
+        HttpRequest listRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        Message[] before = objectMapper.readValue(
+                webClient.send(listRequest, HttpResponse.BodyHandlers.ofString()).body(), Message[].class);
+        Assert.assertArrayEquals(new Message[] { new Message(1, 1, "test message 1", 1669947792) }, before);
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Message[] after = objectMapper.readValue(
+                webClient.send(listRequest, HttpResponse.BodyHandlers.ofString()).body(), Message[].class);
+        Assert.assertArrayEquals(new Message[] { new Message(1, 1, "updated message", 1669947792) }, after);
+    }
+
+    private Message getMessage(int message_id) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + message_id))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        if (response.body().isEmpty()) {
+            return null;
+        }
+        return objectMapper.readValue(response.body(), Message.class);
+    }
+}
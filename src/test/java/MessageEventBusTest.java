@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Model.Message;
+import Service.MessageEventBus;
+
+public class MessageEventBusTest {
+
+    /**
+     * Subscribe more clients that never finish a send than there are sender threads, plus one that reads
+     * normally, then publish a message
+     *
+     * Expected Result:
+     *  the stalled clients are aborted once the write timeout passes, and the healthy one still gets the event
+     */
+    @Test(timeout = 10_000)
+    public void stalledSubscribersAreAbortedAfterTheWriteTimeout() throws InterruptedException {
+        MessageEventBus eventBus = new MessageEventBus(64, 16, MessageEventBus.SlowConsumerPolicy.DISCONNECT,
+                60_000, 200);
+        List<StalledSink> stalled = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            StalledSink sink = new StalledSink();
+            eventBus.subscribe(null, sink);
+            stalled.add(sink);
+        }
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        eventBus.subscribe(null, new MessageEventBus.Sink() {
+            @Override
+            public void send(String event, String data, String id) {
+                received.add(event + " " + id);
+            }
+
+            @Override
+            public void sendComment(String comment) {
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void abort() {
+            }
+        });
+
+        eventBus.publish(MessageEventBus.CREATED, new Message(1, 1, "hello", 1669947792), 7);
+
+        Assert.assertEquals("created 7", received.poll(5, TimeUnit.SECONDS));
+        for (StalledSink sink : stalled) {
+            Assert.assertTrue(sink.aborted.await(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(8L, eventBus.metrics().get("timed_out"));
+        Assert.assertEquals(1, eventBus.metrics().get("subscribers"));
+    }
+
+    /**
+     * A client whose sends block until its connection is aborted, like one that has stopped reading.
+     */
+    private static class StalledSink implements MessageEventBus.Sink {
+        final CountDownLatch aborted = new CountDownLatch(1);
+
+        @Override
+        public void send(String event, String data, String id) {
+            try {
+                aborted.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("connection aborted");
+        }
+
+        @Override
+        public void sendComment(String comment) {
+            send(null, comment, null);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void abort() {
+            aborted.countDown();
+        }
+    }
+}
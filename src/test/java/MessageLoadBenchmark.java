@@ -0,0 +1,136 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import Util.VirtualThreads;
+import io.javalin.Javalin;
+
+/**
+ * A load test for comparing platform and virtual threads. It is not a unit test, so surefire does
+ * not run it; run it once in each mode on a JDK with virtual threads and compare the two summaries:
+ *
+ *   java -cp target/classes:target/test-classes:... MessageLoadBenchmark
+ *   java -Dserver.virtualThreads=true -cp target/classes:target/test-classes:... MessageLoadBenchmark
+ *
+ * It resets the database, posts load.messages messages and then keeps load.concurrency requests in
+ * flight for load.seconds seconds, after a warm-up of load.warmupSeconds. The mix is nine reads of
+ * a message or an account's messages to every new message. Throughput and latency percentiles are
+ * measured by the client over every response after the warm-up.
+ */
+public class MessageLoadBenchmark {
+
+    private static final int PORT = Integer.getInteger("load.port", 8080);
+    private static final int MESSAGES = Integer.getInteger("load.messages", 10_000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 1_000);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 10);
+
+    public static void main(String[] args) throws Exception {
+        ConnectionUtil.resetTestDatabase();
+        Javalin app = new SocialMediaController().startAPI();
+        app.start(PORT);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            for (int i = 0; i < MESSAGES; i++) {
+                client.send(postMessage(), HttpResponse.BodyHandlers.discarding());
+            }
+
+            run(client, WARMUP_SECONDS, false);
+            run(client, SECONDS, true);
+        } finally {
+            app.stop();
+            System.exit(0);
+        }
+    }
+
+
+    /**
+     * Keep CONCURRENCY requests in flight for the given time, and print a summary if asked to.
+     */
+    private static void run(HttpClient client, int seconds, boolean report) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        ConcurrentLinkedQueue<long[]> samples = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            long sentAt = System.nanoTime();
+            client.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        if (e != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            samples.add(new long[] { System.nanoTime() - sentAt });
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(CONCURRENCY);
+        long elapsed = System.nanoTime() - start;
+
+        if (report) {
+            long[] latencies = samples.stream().mapToLong(sample -> sample[0]).sorted().toArray();
+            System.out.println("mode:        " + (VirtualThreads.isEnabled() ? "virtual" : "platform") + " threads, java "
+                    + System.getProperty("java.version"));
+            System.out.println("concurrency: " + CONCURRENCY);
+            System.out.println("requests:    " + latencies.length + " ok, " + errors.get() + " failed");
+            System.out.printf("throughput:  %.0f requests/s%n", latencies.length / (elapsed / 1e9));
+            System.out.printf("latency:     p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    percentile(latencies, 0.999), percentile(latencies, 1.0));
+        }
+    }
+
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+
+    private static HttpRequest nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(10);
+        if (roll == 0) {
+            return postMessage();
+        } else if (roll < 6) {
+            return HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + PORT + "/messages/" + (1 + random.nextInt(MESSAGES))))
+                    .build();
+        }
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + PORT + "/accounts/1/messages?limit=20"))
+                .build();
+    }
+
+
+    private static HttpRequest postMessage() {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + PORT + "/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"load test message\", " +
+                        "\"time_posted_epoch\": " + (System.currentTimeMillis() / 1000) + "}"))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Model.MessageLookup;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+
+public class MessageLookupFailureTest {
+    AtomicBoolean databaseDown;
+    MessageService messageService;
+
+    /**
+     * Before every test, reset the database and build a MessageService whose DAO fails while databaseDown is set.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        databaseDown = new AtomicBoolean();
+        messageService = new MessageService(new MessageDAO() {
+            @Override
+            public Message getMessageById(int message_id) {
+                if (databaseDown.get()) {
+                    throw new DataAccessException(new SQLException("database is down"));
+                }
+                return super.getMessageById(message_id);
+            }
+
+            @Override
+            public List<Message> getMessagesByIds(List<Integer> message_ids) {
+                if (databaseDown.get()) {
+                    throw new DataAccessException(new SQLException("database is down"));
+                }
+                return super.getMessagesByIds(message_ids);
+            }
+        });
+    }
+
+    /**
+     * Look a message up by id while the database is down, then again once it is back
+     *
+     * Expected Result:
+     *  the first lookup fails instead of reporting the message missing, and the second finds it
+     */
+    @Test
+    public void getMessageByIdFailureIsNotCached() {
+        databaseDown.set(true);
+        try {
+            messageService.getMessageById(1);
+            Assert.fail("expected the lookup to fail");
+        } catch (DataAccessException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        databaseDown.set(false);
+        Assert.assertEquals(new Message(1, 1, "test message 1", 1669947792), messageService.getMessageById(1));
+    }
+
+
+    /**
+     * Look several messages up while the database is down, then again once it is back
+     *
+     * Expected Result:
+     *  the first lookup fails instead of reporting every id missing, and the second finds the message
+     */
+    @Test
+    public void getMessagesByIdsFailureIsNotCached() {
+        databaseDown.set(true);
+        try {
+            messageService.getMessagesByIds(List.of(1, 2));
+            Assert.fail("expected the lookup to fail");
+        } catch (DataAccessException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        databaseDown.set(false);
+        MessageLookup lookup = messageService.getMessagesByIds(List.of(1, 2));
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", 1669947792)), lookup.getMessages());
+        Assert.assertEquals(List.of(2), lookup.getMissing_ids());
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageWriteQueue;
+
+public class MessageWriteQueueTest {
+
+    /**
+     * Submit a message to a queue whose group commit fails as a whole
+     *
+     * Expected Result:
+     *  the message's future fails instead of completing with null, which would read as invalid input
+     */
+    @Test
+    public void failedGroupFailsEveryFuture() throws InterruptedException, TimeoutException {
+        MessageDAO failingDAO = new MessageDAO() {
+            @Override
+            public List<Message> insertMessages(List<Message> messages) {
+                return null;
+            }
+        };
+
+        try (MessageWriteQueue queue = new MessageWriteQueue(failingDAO, 16, 16, 1)) {
+            CompletableFuture<Message> future = queue.submit(new Message(1, "hello", 1669947792));
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("expected the write to fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+
+    /**
+     * Submit messages, close the queue, then submit another
+     *
+     * Expected Result:
+     *  the queued messages are committed before close() returns, the writer thread exits, and the late
+     *  message is rejected
+     */
+    @Test
+    public void closeCommitsQueuedMessagesAndStopsTheWriter() throws InterruptedException {
+        List<Message> written = new ArrayList<>();
+        MessageDAO recordingDAO = new MessageDAO() {
+            @Override
+            public List<Message> insertMessages(List<Message> messages) {
+                List<Message> stored = new ArrayList<>();
+                for (Message message : messages) {
+                    stored.add(new Message(written.size() + 1, message.getPosted_by(),
+                            message.getMessage_text(), message.getTime_posted_epoch()));
+                    written.add(message);
+                }
+                return stored;
+            }
+        };
+
+        long writersBefore = countWriterThreads();
+        MessageWriteQueue queue = new MessageWriteQueue(recordingDAO, 16, 16, 1);
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(queue.submit(new Message(1, "message " + i, 1669947792)));
+        }
+        queue.close();
+
+        for (CompletableFuture<Message> future : futures) {
+            Assert.assertTrue(future.isDone());
+            Assert.assertNotNull(future.join());
+        }
+        Assert.assertEquals(5, written.size());
+        Assert.assertEquals(writersBefore, countWriterThreads());
+
+        CompletableFuture<Message> late = queue.submit(new Message(1, "too late", 1669947792));
+        try {
+            late.join();
+            Assert.fail("expected the late write to be rejected");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private long countWriterThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("message-write-behind") && thread.isAlive())
+                .count();
+    }
+}
@@ -0,0 +1,116 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import Util.ConnectionUtil;
+
+/**
+ * Compares the single-statement update and delete MessageDAO uses with the two-step versions it
+ * replaced. It is not a unit test, so surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... MessageWriteStatementBenchmark
+ *
+ * Each round inserts bench.messages messages, updates each of them both ways and deletes half of
+ * them each way, and prints the time per operation. Only the statements are timed, on one
+ * connection with autocommit on, so the change log and the caches do not blur the comparison:
+ *
+ *   update, one statement:  SELECT * FROM FINAL TABLE (UPDATE ...)
+ *   update, two steps:      UPDATE ..., then the row read back through getGeneratedKeys
+ *   delete, one statement:  SELECT * FROM OLD TABLE (DELETE ...)
+ *   delete, two steps:      SELECT the row by id, then DELETE
+ */
+public class MessageWriteStatementBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("bench.messages", 20_000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 3);
+
+    public static void main(String[] args) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+
+        try (Connection connection = ConnectionUtil.getConnection();
+                PreparedStatement updateFinal = connection.prepareStatement(
+                        "SELECT * FROM FINAL TABLE (UPDATE message SET message_text = ? WHERE message_id = ?)");
+                PreparedStatement update = connection.prepareStatement(
+                        "UPDATE message SET message_text = ? WHERE message_id = ?", new int[] { 1, 2, 3, 4 });
+                PreparedStatement deleteOld = connection.prepareStatement(
+                        "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id = ?)");
+                PreparedStatement select = connection.prepareStatement(
+                        "SELECT * FROM message WHERE message_id = ?");
+                PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM message WHERE message_id = ?")) {
+
+            for (int round = 0; round < ROUNDS; round++) {
+                int first = insertMessages(connection, MESSAGES);
+                int half = MESSAGES / 2;
+
+                long start = System.nanoTime();
+                for (int i = 0; i < MESSAGES; i++) {
+                    updateFinal.setString(1, "updated " + i);
+                    updateFinal.setInt(2, first + i);
+                    try (ResultSet rs = updateFinal.executeQuery()) {
+                        rs.next();
+                    }
+                }
+                long updateFinalNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < MESSAGES; i++) {
+                    update.setString(1, "updated again " + i);
+                    update.setInt(2, first + i);
+                    update.executeUpdate();
+                    try (ResultSet rs = update.getGeneratedKeys()) {
+                        rs.next();
+                    }
+                }
+                long updateNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < half; i++) {
+                    deleteOld.setInt(1, first + i);
+                    try (ResultSet rs = deleteOld.executeQuery()) {
+                        rs.next();
+                    }
+                }
+                long deleteOldNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = half; i < 2 * half; i++) {
+                    select.setInt(1, first + i);
+                    try (ResultSet rs = select.executeQuery()) {
+                        rs.next();
+                    }
+                    delete.setInt(1, first + i);
+                    delete.executeUpdate();
+                }
+                long deleteNanos = System.nanoTime() - start;
+
+                System.out.printf("round %d: update %.1f us/op one statement, %.1f us/op two steps; "
+                        + "delete %.1f us/op one statement, %.1f us/op two steps%n", round + 1,
+                        updateFinalNanos / 1e3 / MESSAGES, updateNanos / 1e3 / MESSAGES,
+                        deleteOldNanos / 1e3 / half, deleteNanos / 1e3 / half);
+            }
+        }
+        System.exit(0);
+    }
+
+
+    /**
+     * Insert count messages from account 1 in one statement.
+     *
+     * @return the message ID of the first of them; the rest follow in order.
+     */
+    private static int insertMessages(Connection connection, int count) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int first;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(message_id), 0) + 1 FROM message")) {
+                rs.next();
+                first = rs.getInt(1);
+            }
+            statement.execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1, 'message ' || x, 1669947792 FROM SYSTEM_RANGE(1, " + count + ")");
+            return first;
+        }
+    }
+}
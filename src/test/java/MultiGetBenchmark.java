@@ -0,0 +1,71 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import DAO.MessageDAO;
+import Util.ConnectionUtil;
+
+/**
+ * Measures one multi-get of bench.ids random message IDs against looking each of them up on its own.
+ * It is not a unit test, so surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... MultiGetBenchmark
+ *
+ * It resets the database and inserts bench.messages messages. Each round draws 500 lists of IDs and
+ * reads every list both ways through MessageDAO, so the message cache is not involved, and prints
+ * the average time per list.
+ */
+public class MultiGetBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("bench.messages", 100_000);
+    private static final int IDS = Integer.getInteger("bench.ids", 50);
+    private static final int LISTS = 500;
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 5);
+
+    public static void main(String[] args) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1, 'message number ' || x, 1669947792 + x FROM SYSTEM_RANGE(1, " + MESSAGES + ")");
+        }
+
+        MessageDAO messageDAO = new MessageDAO();
+        Random random = new Random(1);
+        long found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<List<Integer>> lists = new ArrayList<>(LISTS);
+            for (int i = 0; i < LISTS; i++) {
+                List<Integer> ids = new ArrayList<>(IDS);
+                for (int j = 0; j < IDS; j++) {
+                    ids.add(1 + random.nextInt(MESSAGES));
+                }
+                lists.add(ids);
+            }
+
+            long start = System.nanoTime();
+            for (List<Integer> ids : lists) {
+                found += messageDAO.getMessagesByIds(ids).size();
+            }
+            long multiNanos = (System.nanoTime() - start) / LISTS;
+
+            start = System.nanoTime();
+            for (List<Integer> ids : lists) {
+                for (int id : ids) {
+                    if (messageDAO.getMessageById(id) != null) {
+                        found++;
+                    }
+                }
+            }
+            long singleNanos = (System.nanoTime() - start) / LISTS;
+
+            System.out.printf("round %d, %d ids: one multi-get %.0f us, single gets %.0f us%n", round + 1, IDS,
+                    multiNanos / 1e3, singleNanos / 1e3);
+        }
+        System.out.println(found + " messages found");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveAccountTimelineTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    static final long T = 1669947792;
+
+    /**
+     * Before every test, reset the database, add a second account and more messages, restart the Javalin app,
+     * and create a new webClient and ObjectMapper for interacting locally on the web.
+     *
+     * Newest first, account 1 then holds messages 5 (T+30), 2 (T+20), 4 (T+10), 3 (T+10) and 1 (T);
+     * message 6 belongs to account 2.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        seed();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Walking GET localhost:8080/accounts/1/messages?limit=3 with the returned cursors
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 5, 2, 4 and then 3, 1, newest first, with the two messages posted at
+     *  the same time split across the pages without being lost or repeated
+     */
+    @Test
+    public void getAccountTimelineFollowCursor() throws IOException, InterruptedException {
+        MessagePage first = getPage(1, "limit=3");
+        Assert.assertEquals(List.of(message(5, T + 30), message(2, T + 20), message(4, T + 10)), first.getMessages());
+        Assert.assertEquals((T + 10) + ":4", first.getNext_cursor());
+
+        MessagePage last = getPage(1, "before=" + first.getNext_cursor() + "&limit=3");
+        Assert.assertEquals(List.of(message(3, T + 10), new Message(1, 1, "test message 1", T)), last.getMessages());
+        Assert.assertNull(last.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?before={T+20}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages posted strictly before T+20, newest first
+     */
+    @Test
+    public void getAccountTimelineBeforeTime() throws IOException, InterruptedException {
+        MessagePage page = getPage(1, "before=" + (T + 20));
+        Assert.assertEquals(List.of(message(4, T + 10), message(3, T + 10), new Message(1, 1, "test message 1", T)),
+                page.getMessages());
+        Assert.assertNull(page.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/2/messages?limit=10
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the message posted by account 2
+     */
+    @Test
+    public void getAccountTimelineOnlyThatAccount() throws IOException, InterruptedException {
+        MessagePage page = getPage(2, "limit=10");
+        Assert.assertEquals(List.of(new Message(6, 2, "test message 6", T + 40)), page.getMessages());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?before=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getAccountTimelineInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/1/messages?before=abc"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private MessagePage getPage(int account_id, String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/" + account_id + "/messages?" + query))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), MessagePage.class);
+    }
+
+    private Message message(int message_id, long time_posted_epoch) {
+        return new Message(message_id, 1, "test message " + message_id, time_posted_epoch);
+    }
+
+    private void seed() {
+        try (Connection conn = ConnectionUtil.getConnection();
+                PreparedStatement account = conn.prepareStatement(
+                        "insert into account (username, password) values ('testuser2', 'password')");
+                PreparedStatement ps = conn.prepareStatement(
+                        "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)")) {
+            account.executeUpdate();
+
+            long[] times = { T + 20, T + 10, T + 10, T + 30, T + 40 };
+            for (int message_id = 2; message_id <= 6; message_id++) {
+                ps.setInt(1, message_id == 6 ? 2 : 1);
+                ps.setString(2, "test message " + message_id);
+                ps.setLong(3, times[message_id - 2]);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessageChange;
+import Model.MessageChangePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessageChangesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes without since_seq
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: no changes, and a next_seq of 0 since nothing has changed since the database was created
+     */
+    @Test
+    public void getChangesWithoutCursor() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages/changes");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(new MessageChangePage(List.of(), 0, false),
+                objectMapper.readValue(response.body(), MessageChangePage.class));
+    }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes?since_seq=0 after an insert, an update
+     * and a delete
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the three changes in order, each with the message as it is now
+     */
+    @Test
+    public void getChangesAfterInsertUpdateDelete() throws IOException, InterruptedException {
+        postMessage("new message");
+        send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                .header("Content-Type", "application/json"));
+        send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE());
+
+        HttpResponse<String> response = get("/messages/changes?since_seq=0");
+        Assert.assertEquals(200, response.statusCode());
+
+        Message updated = new Message(2, 1, "updated message", 1669947792);
+        MessageChangePage expected = new MessageChangePage(List.of(
+                new MessageChange(1, MessageChange.INSERT, 2, updated),
+                new MessageChange(2, MessageChange.UPDATE, 2, updated),
+                new MessageChange(3, MessageChange.DELETE, 1, null)), 3, false);
+        Assert.assertEquals(expected, objectMapper.readValue(response.body(), MessageChangePage.class));
+
+        MessageChangePage caughtUp = objectMapper.readValue(get("/messages/changes?since_seq=3").body(),
+                MessageChangePage.class);
+        Assert.assertEquals(new MessageChangePage(List.of(), 3, false), caughtUp);
+    }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes?since_seq=0&limit=1 after two inserts
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the first change with has_more set, then the second one from its next_seq
+     */
+    @Test
+    public void getChangesPaged() throws IOException, InterruptedException {
+        postMessage("first");
+        postMessage("second");
+
+        MessageChangePage first = objectMapper.readValue(get("/messages/changes?since_seq=0&limit=1").body(),
+                MessageChangePage.class);
+        Assert.assertEquals(1, first.getChanges().size());
+        Assert.assertEquals(2, first.getChanges().get(0).getMessage_id());
+        Assert.assertTrue(first.isHas_more());
+
+        MessageChangePage second = objectMapper.readValue(
+                get("/messages/changes?since_seq=" + first.getNext_seq() + "&limit=1").body(), MessageChangePage.class);
+        Assert.assertEquals(1, second.getChanges().size());
+        Assert.assertEquals(3, second.getChanges().get(0).getMessage_id());
+        Assert.assertFalse(second.isHas_more());
+    }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes with a since_seq newer than any change,
+     * as a client would after the database was reset
+     *
+     * Expected Response:
+     *  Status Code: 410
+     */
+    @Test
+    public void getChangesCursorGone() throws IOException, InterruptedException {
+        postMessage("new message");
+        Assert.assertEquals(410, get("/messages/changes?since_seq=100").statusCode());
+    }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes with a malformed since_seq
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getChangesMalformedCursor() throws IOException, InterruptedException {
+        Assert.assertEquals(400, get("/messages/changes?since_seq=abc").statusCode());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/changes with a since_seq older than the change log
+     * keeps, after enough changes for the log to be pruned down to messages.changes.retention
+     *
+     * Expected Response:
+     *  Status Code: 410 for the pruned cursor, 200 with the retained changes for a cursor just before them
+     */
+    @Test
+    public void getChangesCursorPruned() throws IOException, InterruptedException {
+        app.stop();
+        System.setProperty("messages.changes.retention", "10");
+        try {
+            socialMediaController = new SocialMediaController();
+            app = socialMediaController.startAPI();
+            app.start(8080);
+        } finally {
+            System.clearProperty("messages.changes.retention");
+        }
+
+        // the log is pruned on every 1024th change
+        postMessages(1000);
+        postMessages(24);
+
+        Assert.assertEquals(410, get("/messages/changes?since_seq=0").statusCode());
+        HttpResponse<String> retained = get("/messages/changes?since_seq=1014");
+        Assert.assertEquals(200, retained.statusCode());
+        MessageChangePage page = objectMapper.readValue(retained.body(), MessageChangePage.class);
+        Assert.assertEquals(10, page.getChanges().size());
+        Assert.assertEquals(1015, page.getChanges().get(0).getSeq());
+        Assert.assertEquals(1024, page.getNext_seq());
+    }
+
+    /**
+     * Poll GET localhost:8080/messages/changes from its next_seq while several clients POST messages at once
+     *
+     * Expected Result:
+     *  every insert is seen exactly once and in increasing seq order, though the transactions commit in
+     *  whatever order they finish
+     */
+    @Test(timeout = 30_000)
+    public void getChangesWhileWritingConcurrently() throws Exception {
+        int writers = 8;
+        int messagesPerWriter = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            writes.add(executor.submit(() -> {
+                for (int i = 0; i < messagesPerWriter; i++) {
+                    postMessage("concurrent message " + i);
+                }
+                return null;
+            }));
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        long since_seq = 0;
+        boolean writing = true;
+        while (writing || seen.size() < writers * messagesPerWriter) {
+            writing = writes.stream().anyMatch(write -> !write.isDone());
+            HttpResponse<String> response = get("/messages/changes?since_seq=" + since_seq);
+            Assert.assertEquals(200, response.statusCode());
+            MessageChangePage page = objectMapper.readValue(response.body(), MessageChangePage.class);
+            for (MessageChange change : page.getChanges()) {
+                Assert.assertTrue(change.getSeq() > since_seq);
+                since_seq = change.getSeq();
+                Assert.assertTrue("seen twice: " + change.getMessage_id(), seen.add(change.getMessage_id()));
+            }
+            since_seq = page.getNext_seq();
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(writers * messagesPerWriter, seen.size());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessages(int count) throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"posted_by\":1, \"message_text\": \"message ").append(i)
+                    .append("\", \"time_posted_epoch\": 1669947792}");
+        }
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body.append("]").toString()))
+                .header("Content-Type", "application/json"));
+        Assert.assertEquals(200, response.statusCode());
+    }
+
+    private void postMessage(String message_text) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + message_text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json"));
+        Assert.assertEquals(200, response.statusCode());
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessageLookup;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesByIdsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add three more messages (four in total), restart the Javalin app,
+     * and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        addMessages(3);
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?ids=3,99,1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 3 and 1 in that order, and 99 as a missing id
+     */
+    @Test
+    public void getMessagesByIdsKeepsRequestOrder() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?ids=3,99,1"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        MessageLookup actual = objectMapper.readValue(response.body().toString(), MessageLookup.class);
+        Assert.assertEquals(new MessageLookup(List.of(message(3), message(1)), List.of(99)), actual);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/lookup with [4, 2, 4, 100], once before and once
+     * after message 2 is cached by GET localhost:8080/messages/2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 4 and 2 once each, and 100 as a missing id, both times
+     */
+    @Test
+    public void lookupMessagesMixesCachedAndFetched() throws IOException, InterruptedException {
+        MessageLookup expected = new MessageLookup(List.of(message(4), message(2)), List.of(100));
+        Assert.assertEquals(expected, lookup("[4, 2, 4, 100]"));
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .build();
+        webClient.send(getRequest, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(expected, lookup("[4, 2, 4, 100]"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?ids=1,abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesByIdsInvalidId() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?ids=1,abc"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private MessageLookup lookup(String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/lookup"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), MessageLookup.class);
+    }
+
+    private Message message(int message_id) {
+        if (message_id == 1) {
+            return new Message(1, 1, "test message 1", 1669947792);
+        }
+        return new Message(message_id, 1, "test message " + message_id, 1669947792 + message_id);
+    }
+
+    private void addMessages(int count) {
+        try (Connection conn = ConnectionUtil.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)")) {
+            for (int message_id = 2; message_id < 2 + count; message_id++) {
+                ps.setInt(1, 1);
+                ps.setString(2, "test message " + message_id);
+                ps.setLong(3, 1669947792 + message_id);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesByTimeRangeTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    static final long T = 1669947792;
+
+    /**
+     * Before every test, reset the database, add four more messages, restart the Javalin app, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     *
+     * Oldest first, the messages are then 1 (T), 3 (T+10), 4 (T+10), 2 (T+20) and 5 (T+30).
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        seed();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since={T+10}&until={T+30}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 3, 4 and 2, oldest first; until is exclusive
+     */
+    @Test
+    public void getMessagesInTimeRange() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?since=" + (T + 10) + "&until=" + (T + 30)))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        List<Message> actual = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>() {});
+        Assert.assertEquals(List.of(message(3, T + 10), message(4, T + 10), message(2, T + 20)), actual);
+    }
+
+    /**
+     * Walking GET localhost:8080/messages?since={T+1}&limit=1 with the returned cursors
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 3, 4, 2 and 5, one per page, with the two messages posted at the same
+     *  time on separate pages
+     */
+    @Test
+    public void getMessagesInTimeRangeFollowCursor() throws IOException, InterruptedException {
+        MessagePage first = getPage("since=" + (T + 1) + "&limit=1");
+        Assert.assertEquals(List.of(message(3, T + 10)), first.getMessages());
+        Assert.assertEquals((T + 10) + ":3", first.getNext_cursor());
+
+        MessagePage second = getPage("since=" + (T + 1) + "&limit=1&cursor=" + first.getNext_cursor());
+        Assert.assertEquals(List.of(message(4, T + 10)), second.getMessages());
+
+        MessagePage third = getPage("since=" + (T + 1) + "&limit=1&cursor=" + second.getNext_cursor());
+        Assert.assertEquals(List.of(message(2, T + 20)), third.getMessages());
+
+        MessagePage last = getPage("since=" + (T + 1) + "&limit=1&cursor=" + third.getNext_cursor());
+        Assert.assertEquals(List.of(message(5, T + 30)), last.getMessages());
+        Assert.assertNull(last.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesInTimeRangeInvalidBound() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?since=abc"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private MessagePage getPage(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?" + query))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), MessagePage.class);
+    }
+
+    private Message message(int message_id, long time_posted_epoch) {
+        return new Message(message_id, 1, "test message " + message_id, time_posted_epoch);
+    }
+
+    private void seed() {
+        try (Connection conn = ConnectionUtil.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)")) {
+            long[] times = { T + 20, T + 10, T + 10, T + 30 };
+            for (int message_id = 2; message_id <= 5; message_id++) {
+                ps.setInt(1, 1);
+                ps.setString(2, "test message " + message_id);
+                ps.setLong(3, times[message_id - 2]);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
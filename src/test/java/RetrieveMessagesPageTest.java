@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveMessagesPageTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add four more messages (five in total), restart the Javalin app,
+     * and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        addMessages(4);
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Walking GET localhost:8080/messages?limit=2 with the returned cursors
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: pages of messages 1-2, 3-4 and 5, the last page without a next_cursor
+     */
+    @Test
+    public void getMessagesPageFollowCursor() throws IOException, InterruptedException {
+        MessagePage first = getPage("limit=2");
+        Assert.assertEquals(List.of(message(1), message(2)), first.getMessages());
+        Assert.assertEquals("2", first.getNext_cursor());
+
+        MessagePage second = getPage("after_id=" + first.getNext_cursor() + "&limit=2");
+        Assert.assertEquals(List.of(message(3), message(4)), second.getMessages());
+        Assert.assertEquals("4", second.getNext_cursor());
+
+        MessagePage last = getPage("after_id=" + second.getNext_cursor() + "&limit=2");
+        Assert.assertEquals(List.of(message(5)), last.getMessages());
+        Assert.assertNull(last.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?after_id=5 (past the last message)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: an empty page without a next_cursor
+     */
+    @Test
+    public void getMessagesPagePastEnd() throws IOException, InterruptedException {
+        MessagePage page = getPage("after_id=5");
+        Assert.assertTrue(page.getMessages().isEmpty());
+        Assert.assertNull(page.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?after_id=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesPageInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?after_id=abc"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private MessagePage getPage(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?" + query))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), MessagePage.class);
+    }
+
+    private Message message(int message_id) {
+        if (message_id == 1) {
+            return new Message(1, 1, "test message 1", 1669947792);
+        }
+        return new Message(message_id, 1, "test message " + message_id, 1669947792 + message_id);
+    }
+
+    private void addMessages(int count) {
+        try (Connection conn = ConnectionUtil.getConnection();
+                PreparedStatement ps = conn.prepareStatement(
+                        "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)")) {
+            for (int message_id = 2; message_id < 2 + count; message_id++) {
+                ps.setInt(1, 1);
+                ps.setString(2, "test message " + message_id);
+                ps.setLong(3, 1669947792 + message_id);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
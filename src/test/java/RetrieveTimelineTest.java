@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class RetrieveTimelineTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    static final long T = 1669947792;
+
+    /**
+     * Before every test, reset the database, add two more accounts and five more messages, restart the Javalin
+     * app, and create a new webClient and ObjectMapper for interacting locally on the web.
+     *
+     * Account 1 then holds messages 1 (T) and 4 (T+10), account 2 holds 2 (T+5) and 5 (T+15), and account 3
+     * holds 3 (T+15) and 6 (T+1).
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        seed();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/timeline?accounts=1,2,3&limit=10
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message of the three accounts, newest first, with messages 5 and 3 (posted at the
+     *  same time) ordered by message_id
+     */
+    @Test
+    public void getTimelineMergesAccounts() throws IOException, InterruptedException {
+        MessagePage page = getPage("accounts=1,2,3&limit=10");
+        Assert.assertEquals(List.of(message(5, 2, T + 15), message(3, 3, T + 15), message(4, 1, T + 10),
+                message(2, 2, T + 5), message(6, 3, T + 1), new Message(1, 1, "test message 1", T)),
+                page.getMessages());
+        Assert.assertNull(page.getNext_cursor());
+    }
+
+    /**
+     * Walking GET localhost:8080/timeline?accounts=1,2&limit=3 with the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 5, 4, 2 and then 1; account 3 is not included
+     */
+    @Test
+    public void getTimelineFollowCursor() throws IOException, InterruptedException {
+        MessagePage first = getPage("accounts=1,2&limit=3");
+        Assert.assertEquals(List.of(message(5, 2, T + 15), message(4, 1, T + 10), message(2, 2, T + 5)),
+                first.getMessages());
+        Assert.assertEquals((T + 5) + ":2", first.getNext_cursor());
+
+        MessagePage last = getPage("accounts=1,2&limit=3&before=" + first.getNext_cursor());
+        Assert.assertEquals(List.of(new Message(1, 1, "test message 1", T)), last.getMessages());
+        Assert.assertNull(last.getNext_cursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/timeline without accounts
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getTimelineMissingAccounts() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/timeline?limit=10"))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private MessagePage getPage(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/timeline?" + query))
+                .build();
+        HttpResponse response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), MessagePage.class);
+    }
+
+    private Message message(int message_id, int posted_by, long time_posted_epoch) {
+        return new Message(message_id, posted_by, "test message " + message_id, time_posted_epoch);
+    }
+
+    private void seed() {
+        try (Connection conn = ConnectionUtil.getConnection();
+                PreparedStatement account = conn.prepareStatement(
+                        "insert into account (username, password) values (?, 'password')");
+                PreparedStatement ps = conn.prepareStatement(
+                        "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)")) {
+            for (String username : new String[] { "testuser2", "testuser3" }) {
+                account.setString(1, username);
+                account.executeUpdate();
+            }
+
+            int[] posters = { 2, 3, 1, 2, 3 };
+            long[] times = { T + 5, T + 15, T + 10, T + 15, T + 1 };
+            for (int message_id = 2; message_id <= 6; message_id++) {
+                ps.setInt(1, posters[message_id - 2]);
+                ps.setString(2, "test message " + message_id);
+                ps.setLong(3, times[message_id - 2]);
+                ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
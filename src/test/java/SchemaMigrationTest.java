@@ -0,0 +1,108 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionUtil;
+import Util.SchemaMigrator;
+
+public class SchemaMigrationTest {
+    Connection connection;
+
+    /**
+     * Before every test, reset the database, which also re-runs the migrations.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        connection = ConnectionUtil.getConnection();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Every migration is recorded in schema_version, in order, with a checksum.
+     */
+    @Test
+    public void migrationsAreRecorded() throws SQLException {
+        List<Integer> versions = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT version, checksum FROM schema_version ORDER BY version");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                versions.add(rs.getInt("version"));
+                Assert.assertNotEquals(0, rs.getLong("checksum"));
+            }
+        }
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), versions);
+    }
+
+    /**
+     * Running the migrations again applies nothing and keeps the existing data.
+     */
+    @Test
+    public void migrateIsIdempotent() throws SQLException {
+        Assert.assertEquals(0, SchemaMigrator.migrate(connection));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM account"));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM message"));
+    }
+
+    /**
+     * Reading an account's messages is served by an index rather than a table scan.
+     */
+    @Test
+    public void messagesByAccountUseAnIndex() throws SQLException {
+        String plan = explain("SELECT * FROM message WHERE posted_by = 1");
+        Assert.assertFalse(plan, plan.contains("tableScan"));
+    }
+
+    /**
+     * A page of an account's timeline seeks the (posted_by, time_posted_epoch, message_id) index and 
+     * reads it in order, without sorting.
+     */
+    @Test
+    public void accountTimelineUsesSortedCompositeIndex() throws SQLException {
+        String plan = explain("SELECT * FROM message WHERE posted_by = 1 AND time_posted_epoch <= 1669947793 "
+                + "AND (time_posted_epoch < 1669947793 OR message_id < 5) "
+                + "ORDER BY posted_by DESC, time_posted_epoch DESC, message_id DESC LIMIT 20");
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_POSTED_BY_TIME_DESC"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    /**
+     * A page of a time window seeks the (time_posted_epoch, message_id) index and reads it in order.
+     */
+    @Test
+    public void timeRangeUsesSortedTimeIndex() throws SQLException {
+        String plan = explain("SELECT * FROM message WHERE time_posted_epoch >= 1669947700 AND time_posted_epoch < 1669947800 "
+                + "AND (time_posted_epoch > 1669947700 OR message_id > 5) "
+                + "ORDER BY time_posted_epoch, message_id LIMIT 20");
+        Assert.assertTrue(plan, plan.contains("IDX_MESSAGE_TIME"));
+        Assert.assertTrue(plan, plan.contains("index sorted"));
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
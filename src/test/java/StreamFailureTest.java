@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Util.Bulkhead;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+import io.javalin.Javalin;
+
+public class StreamFailureTest {
+    HttpClient webClient;
+    Javalin app;
+    volatile int rowsBeforeFailure;
+
+    /**
+     * Before every test, reset the database and start the Javalin app with a DAO whose full message list fails
+     * after rowsBeforeFailure rows.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        MessageService messageService = new MessageService(new MessageDAO() {
+            @Override
+            public int streamAllMessages(Consumer<Message> sink) {
+                for (int i = 0; i < rowsBeforeFailure; i++) {
+                    sink.accept(new Message(i + 1, 1, "message " + i, 1669947792L));
+                }
+                throw new DataAccessException(new SQLException("database is down"));
+            }
+        });
+        SocialMediaController socialMediaController = new SocialMediaController(messageService,
+                new Bulkhead("test-reads", 2, 2), new Bulkhead("test-writes", 2, 2));
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Fail the query before any row is read, then GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 503
+     */
+    @Test
+    public void failureBeforeFirstRowAnswers503() throws IOException, InterruptedException {
+        rowsBeforeFailure = 0;
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(503, response.statusCode());
+    }
+
+
+    /**
+     * Fail the query after the first row has been sent, then GET localhost:8080/messages
+     *
+     * Expected Result:
+     *  the response breaks off instead of ending as a complete JSON array
+     */
+    @Test
+    public void failureMidStreamAbortsTheResponse() throws InterruptedException {
+        rowsBeforeFailure = 1;
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        try {
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            Assert.fail("expected a broken response, got " + response.statusCode() + " " + response.body());
+        } catch (IOException e) {
+            // the connection was aborted before the array was closed
+        }
+    }
+}
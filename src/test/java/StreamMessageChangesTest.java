@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class StreamMessageChangesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * GET localhost:8080/messages/stream, then POST, PATCH and DELETE a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a created, an updated and a deleted event, each with the message as JSON
+     */
+    @Test(timeout = 10_000)
+    public void streamCreatedUpdatedDeleted() throws IOException, InterruptedException {
+        try (BufferedReader events = subscribe("/messages/stream")) {
+            postMessage(1, "new message");
+            send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/2"))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"updated message\"}"))
+                    .header("Content-Type", "application/json"));
+            send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/2"))
+                    .DELETE());
+
+            Assert.assertEquals("created", nextEvent(events));
+            Assert.assertEquals(new Message(2, 1, "new message", 1669947792), nextData(events));
+            Assert.assertEquals("updated", nextEvent(events));
+            Assert.assertEquals(new Message(2, 1, "updated message", 1669947792), nextData(events));
+            Assert.assertEquals("deleted", nextEvent(events));
+            Assert.assertEquals(new Message(2, 1, "updated message", 1669947792), nextData(events));
+        }
+    }
+
+
+    /**
+     * GET localhost:8080/messages/stream?posted_by=2, then POST a message from account 1 and one from account 2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the created event for account 2's message
+     */
+    @Test(timeout = 10_000)
+    public void streamFilteredByPostedBy() throws IOException, InterruptedException {
+        HttpResponse<String> register = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"user2\", \"password\": \"password\"}"))
+                .header("Content-Type", "application/json"));
+        Assert.assertEquals(200, register.statusCode());
+
+        try (BufferedReader events = subscribe("/messages/stream?posted_by=2")) {
+            postMessage(1, "from account 1");
+            postMessage(2, "from account 2");
+
+            Assert.assertEquals("created", nextEvent(events));
+            Assert.assertEquals(new Message(3, 2, "from account 2", 1669947792), nextData(events));
+        }
+    }
+
+
+    /**
+     * GET localhost:8080/messages/stream, POST two messages, then GET localhost:8080/messages/changes from
+     * the first event's id
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: each event's id is the seq of its change, so resuming after the first event's id
+     *  returns the second message's change
+     */
+    @Test(timeout = 10_000)
+    public void streamEventIdIsChangeSeq() throws IOException, InterruptedException {
+        try (BufferedReader events = subscribe("/messages/stream")) {
+            postMessage(1, "first message");
+            postMessage(1, "second message");
+
+            long firstId = Long.parseLong(nextId(events));
+            Assert.assertEquals(new Message(2, 1, "first message", 1669947792), nextData(events));
+            long secondId = Long.parseLong(nextId(events));
+            Assert.assertEquals(new Message(3, 1, "second message", 1669947792), nextData(events));
+
+            HttpResponse<String> response = send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/changes?since_seq=" + (firstId - 1))));
+            Assert.assertEquals(200, response.statusCode());
+            JsonNode changes = objectMapper.readTree(response.body()).get("changes");
+            Assert.assertEquals(2, changes.size());
+            Assert.assertEquals(firstId, changes.get(0).get("seq").asLong());
+            Assert.assertEquals(2, changes.get(0).get("message_id").asInt());
+            Assert.assertEquals(secondId, changes.get(1).get("seq").asLong());
+            Assert.assertEquals(3, changes.get(1).get("message_id").asInt());
+        }
+    }
+
+    /**
+     * Open the stream and wait until the server says the subscription is in place.
+     */
+    private BufferedReader subscribe(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<InputStream> response = webClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        Assert.assertEquals(200, response.statusCode());
+
+        BufferedReader events = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = events.readLine()) != null && !line.contains("subscribed")) {
+        }
+        return events;
+    }
+
+    private String nextId(BufferedReader events) throws IOException {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("id: ")) {
+                return line.substring("id: ".length());
+            }
+        }
+        return null;
+    }
+
+    private String nextEvent(BufferedReader events) throws IOException {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("event: ")) {
+                return line.substring("event: ".length());
+            }
+        }
+        return null;
+    }
+
+    private Message nextData(BufferedReader events) throws IOException {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                return objectMapper.readValue(line.substring("data: ".length()), Message.class);
+            }
+        }
+        return null;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(int posted_by, String message_text) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{"+
+                        "\"posted_by\":" + posted_by + ", " +
+                        "\"message_text\": \"" + message_text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json"));
+        Assert.assertEquals(200, response.statusCode());
+    }
+}
@@ -0,0 +1,63 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Util.ConnectionUtil;
+
+/**
+ * Measures streaming a time window of messages through idx_message_time against reading every
+ * message and filtering in Java. It is not a unit test, so surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... TimeRangeBenchmark
+ *   java -Dbench.messages=400000 -cp target/classes:target/test-classes:... TimeRangeBenchmark
+ *
+ * It resets the database and inserts bench.messages messages, one per second. Each round then reads
+ * a window of bench.window seconds from the middle of the table both ways, and prints the average
+ * time of each. The window's cost should depend on its own size, not the table's.
+ */
+public class TimeRangeBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("bench.messages", 100_000);
+    private static final int WINDOW = Integer.getInteger("bench.window", 1_000);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 4);
+
+    private static final long FIRST_TIME = 1669947792L;
+
+    public static void main(String[] args) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1, 'message number ' || x, " + FIRST_TIME + " + x FROM SYSTEM_RANGE(1, " + MESSAGES + ")");
+        }
+
+        MessageDAO messageDAO = new MessageDAO();
+        long since = FIRST_TIME + MESSAGES / 2;
+        long until = since + WINDOW;
+        long rows = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 50; i++) {
+                rows += messageDAO.streamMessagesInTimeRange(since, until, message -> { });
+            }
+            long windowNanos = (System.nanoTime() - start) / 50;
+
+            start = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                for (Message message : messageDAO.getAllMessages()) {
+                    if (message.getTime_posted_epoch() >= since && message.getTime_posted_epoch() < until) {
+                        rows++;
+                    }
+                }
+            }
+            long fullNanos = (System.nanoTime() - start) / 3;
+
+            System.out.printf("round %d, %d messages: %d-second window %.1f ms, full read and filter %.1f ms%n",
+                    round + 1, MESSAGES, WINDOW, windowNanos / 1e6, fullNanos / 1e6);
+        }
+        System.out.println(rows + " rows read");
+        System.exit(0);
+    }
+}
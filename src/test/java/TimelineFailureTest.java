@@ -0,0 +1,52 @@
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import Util.DataAccessException;
+
+public class TimelineFailureTest {
+    MessageService messageService;
+
+    /**
+     * Before every test, reset the database and build a MessageService whose DAO cannot read account 2's messages.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        messageService = new MessageService(new MessageDAO() {
+            @Override
+            public List<Message> getMessagesFromAccountIdBefore(int account_id, Long before_time, int before_id,
+                    int limit) {
+                if (account_id == 2) {
+                    throw new DataAccessException(new SQLException("database is down"));
+                }
+                return super.getMessagesFromAccountIdBefore(account_id, before_time, before_id, limit);
+            }
+        });
+    }
+
+    /**
+     * Merge the timelines of accounts 1 and 2 while account 2's messages cannot be read
+     *
+     * Expected Result:
+     *  the merge fails instead of returning a page with account 2 silently left out
+     */
+    @Test
+    public void getTimelineFailsWhenAnAccountCannotBeRead() {
+        try {
+            messageService.getTimeline(List.of(1, 2), null, 10);
+            Assert.fail("expected the timeline to fail");
+        } catch (DataAccessException e) {
+            Assert.assertEquals("database is down", e.getMessage());
+        }
+
+        Assert.assertEquals(1, messageService.getTimeline(List.of(1), null, 10).getMessages().size());
+    }
+}
@@ -0,0 +1,70 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import DAO.MessageDAO;
+import Model.Message;
+import Service.TimelineMerger;
+import Util.ConnectionUtil;
+
+/**
+ * Measures one merged timeline page over several accounts against fetching every account's full
+ * message list, which is what a client had to do before GET /timeline. It is not a unit test, so
+ * surefire does not run it:
+ *
+ *   java -cp target/classes:target/test-classes:... TimelineMergeBenchmark
+ *
+ * It resets the database and spreads bench.messages messages evenly over bench.accounts accounts.
+ * Each round merges the newest page of bench.pageSize messages, then fetches every account's list,
+ * and prints the average time of each.
+ */
+public class TimelineMergeBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("bench.accounts", 50);
+    private static final int MESSAGES = Integer.getInteger("bench.messages", 500_000);
+    private static final int PAGE_SIZE = Integer.getInteger("bench.pageSize", 50);
+    private static final int ROUNDS = Integer.getInteger("bench.rounds", 5);
+
+    public static void main(String[] args) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO account (username, password) "
+                    + "SELECT 'user' || x, 'password' FROM SYSTEM_RANGE(2, " + ACCOUNTS + ")");
+            statement.execute("INSERT INTO message (posted_by, message_text, time_posted_epoch) "
+                    + "SELECT 1 + MOD(x, " + ACCOUNTS + "), 'message number ' || x, 1669947792 + x "
+                    + "FROM SYSTEM_RANGE(1, " + MESSAGES + ")");
+        }
+
+        MessageDAO messageDAO = new MessageDAO();
+        TimelineMerger timelineMerger = new TimelineMerger(messageDAO);
+        List<Integer> account_ids = new ArrayList<>(ACCOUNTS);
+        for (int account_id = 1; account_id <= ACCOUNTS; account_id++) {
+            account_ids.add(account_id);
+        }
+
+        long rows = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 50; i++) {
+                rows += timelineMerger.merge(account_ids, null, 0, PAGE_SIZE).getMessages().size();
+            }
+            long mergedNanos = (System.nanoTime() - start) / 50;
+
+            start = System.nanoTime();
+            List<Message> all = new ArrayList<>();
+            for (int account_id : account_ids) {
+                all.addAll(messageDAO.getMessagesFromAccountId(account_id));
+            }
+            rows += all.size();
+            long fetchAllNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d, %d accounts: merged page %.1f ms, every full list %.0f ms%n", round + 1,
+                    ACCOUNTS, mergedNanos / 1e6, fetchAllNanos / 1e6);
+        }
+        System.out.println(rows + " rows read");
+        System.exit(0);
+    }
+}
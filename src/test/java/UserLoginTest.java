@@ -119,4 +119,48 @@ public class UserLoginTest {
         Assert.assertEquals("", response.body().toString());
 
     }
+
+
+    /**
+     * Sending an http request to POST localhost:8080/login with a username far longer than any valid one
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: 
+     */
+    @Test
+    public void loginBodyTooLarge() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"" + "a".repeat(20 * 1024) + "\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assert.assertEquals(400, status);
+        Assert.assertEquals("", response.body().toString());
+    }
+
+
+    /**
+     * Sending an http request to POST localhost:8080/login with no username
+     * 
+     * Expected Response:
+     *  Status Code: 401
+     *  Response Body: 
+     */
+    @Test
+    public void loginWithoutUsername() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(401, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
 }
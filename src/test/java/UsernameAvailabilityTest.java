@@ -0,0 +1,108 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class UsernameAvailabilityTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/available?username=testuser1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: {"username": "testuser1", "available": false}
+     */
+    @Test
+    public void existingUsernameIsNotAvailable() throws IOException, InterruptedException {
+        Map<String, Object> output = checkAvailable("testuser1");
+        Assert.assertEquals("testuser1", output.get("username"));
+        Assert.assertEquals(false, output.get("available"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/available?username=newuser before and after
+     * registering newuser
+     *
+     * Expected Response:
+     *  available is true before the registration and false after it
+     */
+    @Test
+    public void usernameIsNotAvailableAfterRegistering() throws IOException, InterruptedException {
+        Assert.assertEquals(true, checkAvailable("newuser").get("available"));
+
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"newuser\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+
+        Assert.assertEquals(false, checkAvailable("newuser").get("available"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/available without a username
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void missingUsernameIsRejected() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/available"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+
+    private Map<String, Object> checkAvailable(String username) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/available?username=" + username))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<Map<String, Object>>() {});
+    }
+}